@@ -19,8 +19,12 @@
  */
 package io.wcm.handler.link;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.sling.api.resource.Resource;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.osgi.annotation.versioning.ProviderType;
 
 import com.day.cq.wcm.api.Page;
@@ -66,4 +70,24 @@ public interface LinkHandler {
   @NotNull
   LinkBuilder get(@NotNull LinkRequest linkRequest);
 
+  /**
+   * Build internal links referencing the given content pages, e.g. for navigation or list components.
+   * All links are resolved with the same link handler context and link arguments.
+   * @param pages Target content pages
+   * @param linkArgs Link arguments shared by all links (optional)
+   * @return Links in the same order as the given pages
+   */
+  @NotNull
+  List<Link> getPageLinks(@NotNull Collection<Page> pages, @Nullable LinkArgs linkArgs);
+
+  /**
+   * Build links which are referenced in the given resources, e.g. for list components.
+   * All links are resolved with the same link handler context and link arguments.
+   * @param resources Resources containing properties that define the link targets
+   * @param linkArgs Link arguments shared by all links (optional)
+   * @return Links in the same order as the given resources
+   */
+  @NotNull
+  List<Link> getResourceLinks(@NotNull Collection<Resource> resources, @Nullable LinkArgs linkArgs);
+
 }
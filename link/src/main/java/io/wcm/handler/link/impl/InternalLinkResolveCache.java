@@ -0,0 +1,270 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches results of resolving internal links across requests.
+ * If content pages are changed only entries depending on the changed pages or their descendants are invalidated,
+ * changes of Sling Mapping or context-aware configuration invalidate the whole cache.
+ * Cached entries additionally expire at the next on- or off-time boundary of the link target page.
+ * The cache is disabled by default, it is recommended to enable it only on publish instances.
+ */
+@Component(service = { InternalLinkResolveCache.class, ResourceChangeListener.class }, property = {
+    ResourceChangeListener.PATHS + "=/content",
+    ResourceChangeListener.PATHS + "=/etc/map",
+    ResourceChangeListener.PATHS + "=/conf",
+    ResourceChangeListener.PATHS + "=/apps/conf",
+    ResourceChangeListener.PATHS + "=/libs/conf"
+})
+@Designate(ocd = InternalLinkResolveCache.Config.class)
+public final class InternalLinkResolveCache implements ResourceChangeListener, ExternalResourceChangeListener {
+
+  @ObjectClassDefinition(name = "wcm.io Link Handler Internal Link Resolve Cache",
+      description = "Caches results of resolving internal links across requests.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Enabled", description = "Enable caching of resolved internal links. "
+        + "Recommended only on publish instances.")
+    boolean enabled() default false;
+
+    @AttributeDefinition(name = "Cache max. size", description = "Max. number of resolved internal links that are cached.")
+    long cacheMaxSize() default 10000;
+
+  }
+
+  private static final String CONTENT_ROOT = "/content";
+  private static final String[] IGNORED_CONTENT_ROOTS = {
+      // assets and user generated content do not affect resolving internal links
+      "/content/dam",
+      "/content/usergenerated"
+  };
+  private static final String JCR_CONTENT_PATH_PART = "/jcr:content";
+
+  private static final Logger log = LoggerFactory.getLogger(InternalLinkResolveCache.class);
+
+  private boolean enabled;
+  private Cache<String, Entry> cache;
+
+  @Activate
+  private void activate(Config config) {
+    enabled = config.enabled();
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(config.cacheMaxSize())
+        .build();
+  }
+
+  /**
+   * @return true if caching is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param key Cache key
+   * @return Cached entry or null if none cached or it is expired
+   */
+  public @Nullable Entry get(@NotNull String key) {
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+      cache.invalidate(key);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * @param key Cache key
+   * @param entry Entry
+   */
+  public void put(@NotNull String key, @NotNull Entry entry) {
+    cache.put(key, entry);
+  }
+
+  /**
+   * @return Number of cached entries
+   */
+  long size() {
+    return cache.size();
+  }
+
+  @Override
+  public void onChange(@NotNull List<ResourceChange> changes) {
+    Set<String> changedPagePaths = new HashSet<>();
+    for (ResourceChange change : changes) {
+      String path = change.getPath();
+      if (isIgnoredContentPath(path)) {
+        continue;
+      }
+      // Sling Mapping and context-aware configuration may affect all links
+      if (!isSelfOrDescendant(path, CONTENT_ROOT)) {
+        log.debug("Invalidate internal link resolve cache due to change of {}", path);
+        cache.invalidateAll();
+        return;
+      }
+      changedPagePaths.add(getPagePath(path));
+    }
+    if (changedPagePaths.isEmpty()) {
+      return;
+    }
+    log.debug("Invalidate internal link resolve cache entries depending on {}", changedPagePaths);
+    cache.asMap().values().removeIf(entry -> entry.dependsOn(changedPagePaths));
+  }
+
+  private static boolean isIgnoredContentPath(String path) {
+    for (String ignoredRoot : IGNORED_CONTENT_ROOTS) {
+      if (isSelfOrDescendant(path, ignoredRoot)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSelfOrDescendant(String path, String parentPath) {
+    return StringUtils.equals(path, parentPath) || StringUtils.startsWith(path, parentPath + "/");
+  }
+
+  /**
+   * Changes within the content resource of a page are mapped to the page path.
+   * @param path Changed path
+   * @return Page path
+   */
+  private static String getPagePath(String path) {
+    int index = path.indexOf(JCR_CONTENT_PATH_PART + "/");
+    if (index < 0 && path.endsWith(JCR_CONTENT_PATH_PART)) {
+      index = path.length() - JCR_CONTENT_PATH_PART.length();
+    }
+    return index >= 0 ? path.substring(0, index) : path;
+  }
+
+  /**
+   * Get the time from which on the validity of the given page changes due to its on- or off-time.
+   * @param page Page
+   * @param now Current time
+   * @return Time in milliseconds or {@link Long#MAX_VALUE} if no future on- or off-time is defined
+   */
+  public static long getNextValidityBoundary(@Nullable Page page, long now) {
+    long boundary = Long.MAX_VALUE;
+    if (page != null) {
+      boundary = getNextBoundary(page.getOnTime(), now, boundary);
+      boundary = getNextBoundary(page.getOffTime(), now, boundary);
+    }
+    return boundary;
+  }
+
+  private static long getNextBoundary(@Nullable Calendar time, long now, long boundary) {
+    if (time != null && time.getTimeInMillis() > now) {
+      return Math.min(time.getTimeInMillis(), boundary);
+    }
+    return boundary;
+  }
+
+  /**
+   * Cached result of resolving an internal link.
+   */
+  public static final class Entry {
+
+    private final String url;
+    private final String targetPagePath;
+    private final String contextPath;
+    private final boolean linkReferenceInvalid;
+    private final long expiresAt;
+
+    /**
+     * @param url Link URL
+     * @param targetPagePath Path of link target page
+     * @param contextPath Path of the site or page the link was resolved in
+     * @param linkReferenceInvalid Link reference invalid
+     * @param expiresAt Time in milliseconds after which the entry is expired
+     */
+    public Entry(@Nullable String url, @Nullable String targetPagePath, @Nullable String contextPath,
+        boolean linkReferenceInvalid, long expiresAt) {
+      this.url = url;
+      this.targetPagePath = targetPagePath;
+      this.contextPath = contextPath;
+      this.linkReferenceInvalid = linkReferenceInvalid;
+      this.expiresAt = expiresAt;
+    }
+
+    public @Nullable String getUrl() {
+      return this.url;
+    }
+
+    public @Nullable String getTargetPagePath() {
+      return this.targetPagePath;
+    }
+
+    public boolean isLinkReferenceInvalid() {
+      return this.linkReferenceInvalid;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+
+    /**
+     * Links without target page may become valid by any new page, otherwise the entry depends on the
+     * target page, the context it was resolved in and their parent pages.
+     * @param pagePaths Changed page paths
+     * @return true if the entry depends on one of the pages
+     */
+    boolean dependsOn(Set<String> pagePaths) {
+      return targetPagePath == null
+          || isSelfOrDescendantOfAny(targetPagePath, pagePaths)
+          || (contextPath != null && isSelfOrDescendantOfAny(contextPath, pagePaths));
+    }
+
+    private static boolean isSelfOrDescendantOfAny(String path, Set<String> parentPaths) {
+      String currentPath = path;
+      while (StringUtils.isNotEmpty(currentPath)) {
+        if (parentPaths.contains(currentPath)) {
+          return true;
+        }
+        currentPath = StringUtils.substringBeforeLast(currentPath, "/");
+      }
+      return false;
+    }
+
+  }
+
+}
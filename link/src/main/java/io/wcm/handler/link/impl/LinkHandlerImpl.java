@@ -19,8 +19,14 @@
  */
 package io.wcm.handler.link.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
@@ -28,12 +34,15 @@ import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.injectorspecific.InjectionStrategy;
 import org.apache.sling.models.annotations.injectorspecific.Self;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.day.cq.wcm.api.Page;
 
 import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkArgs;
 import io.wcm.handler.link.LinkBuilder;
 import io.wcm.handler.link.LinkHandler;
+import io.wcm.handler.link.LinkNameConstants;
 import io.wcm.handler.link.LinkRequest;
 import io.wcm.handler.link.spi.LinkHandlerConfig;
 import io.wcm.handler.link.spi.LinkMarkupBuilder;
@@ -57,6 +66,14 @@ public final class LinkHandlerImpl implements LinkHandler {
   @AemObject(injectionStrategy = InjectionStrategy.OPTIONAL)
   private Page currentPage;
 
+  // link types, processors and markup builders adapted from the adaptable of this link handler
+  private final Map<Class<?>, Object> delegates = new HashMap<>();
+  private List<LinkType> linkTypes;
+  private Map<String, LinkType> linkTypesById;
+  private List<LinkProcessor> preProcessors;
+  private List<LinkMarkupBuilder> markupBuilders;
+  private List<LinkProcessor> postProcessors;
+
   @Override
   public @NotNull LinkBuilder get(Resource resource) {
     return new LinkBuilderImpl(resource, this);
@@ -72,6 +89,24 @@ public final class LinkHandlerImpl implements LinkHandler {
     return new LinkBuilderImpl(linkRequest, this);
   }
 
+  @Override
+  public @NotNull List<Link> getPageLinks(@NotNull Collection<Page> pages, @Nullable LinkArgs linkArgs) {
+    List<Link> links = new ArrayList<>(pages.size());
+    for (Page page : pages) {
+      links.add(processRequest(new LinkRequest(null, page, linkArgs != null ? linkArgs.clone() : null)));
+    }
+    return links;
+  }
+
+  @Override
+  public @NotNull List<Link> getResourceLinks(@NotNull Collection<Resource> resources, @Nullable LinkArgs linkArgs) {
+    List<Link> links = new ArrayList<>(resources.size());
+    for (Resource resource : resources) {
+      links.add(processRequest(new LinkRequest(resource, null, linkArgs != null ? linkArgs.clone() : null)));
+    }
+    return links;
+  }
+
   /**
    * Resolves the link
    * @param linkRequest Link request
@@ -81,30 +116,28 @@ public final class LinkHandlerImpl implements LinkHandler {
   @SuppressWarnings({ "null", "unused" })
   Link processRequest(@NotNull LinkRequest linkRequest) {
 
-    // detect link type - first accepting wins
+    // detect link type - link type matching the stored link type ID is checked first, otherwise first accepting wins
+    // (direct page links always check all link types in configured order)
     LinkType linkType = null;
-    List<Class<? extends LinkType>> linkTypes = linkHandlerConfig.getLinkTypes();
-    if (linkTypes == null || linkTypes.isEmpty()) {
-      throw new RuntimeException("No link types defined.");
-    }
-    for (Class<? extends LinkType> candidateLinkTypeClass : linkTypes) {
-      LinkType candidateLinkType = AdaptTo.notNull(adaptable, candidateLinkTypeClass);
-      if (candidateLinkType.accepts(linkRequest)) {
-        linkType = candidateLinkType;
-        break;
+    if (linkRequest.getPage() == null) {
+      linkType = getLinkTypeById(linkRequest.getResourceProperties().get(LinkNameConstants.PN_LINK_TYPE, String.class));
+    }
+    if (linkType == null || !linkType.accepts(linkRequest)) {
+      linkType = null;
+      for (LinkType candidateLinkType : getLinkTypes()) {
+        if (candidateLinkType.accepts(linkRequest)) {
+          linkType = candidateLinkType;
+          break;
+        }
       }
     }
     Link link = new Link(linkType, linkRequest);
 
     // preprocess link before resolving
-    List<Class<? extends LinkProcessor>> linkPreProcessors = linkHandlerConfig.getPreProcessors();
-    if (linkPreProcessors != null) {
-      for (Class<? extends LinkProcessor> processorClass : linkPreProcessors) {
-        LinkProcessor processor = AdaptTo.notNull(adaptable, processorClass);
-        link = processor.process(link);
-        if (link == null) {
-          throw new RuntimeException("LinkPreProcessor '" + processor + "' returned null, page '" + (currentPage != null ? currentPage.getPath() : "-") + "'.");
-        }
+    for (LinkProcessor processor : getPreProcessors()) {
+      link = processor.process(link);
+      if (link == null) {
+        throw new RuntimeException("LinkPreProcessor '" + processor + "' returned null, page '" + (currentPage != null ? currentPage.getPath() : "-") + "'.");
       }
     }
 
@@ -117,30 +150,109 @@ public final class LinkHandlerImpl implements LinkHandler {
     }
 
     // generate markup (if markup builder is available) - first accepting wins
-    List<Class<? extends LinkMarkupBuilder>> linkMarkupBuilders = linkHandlerConfig.getMarkupBuilders();
-    if (linkMarkupBuilders != null) {
-      for (Class<? extends LinkMarkupBuilder> linkMarkupBuilderClass : linkMarkupBuilders) {
-        LinkMarkupBuilder linkMarkupBuilder = AdaptTo.notNull(adaptable, linkMarkupBuilderClass);
-        if (linkMarkupBuilder.accepts(link)) {
-          link.setAnchor(linkMarkupBuilder.build(link));
-          break;
-        }
+    for (LinkMarkupBuilder linkMarkupBuilder : getMarkupBuilders()) {
+      if (linkMarkupBuilder.accepts(link)) {
+        link.setAnchor(linkMarkupBuilder.build(link));
+        break;
       }
     }
 
     // postprocess link after resolving
-    List<Class<? extends LinkProcessor>> linkPostProcessors = linkHandlerConfig.getPostProcessors();
-    if (linkPostProcessors != null) {
-      for (Class<? extends LinkProcessor> processorClass : linkPostProcessors) {
-        LinkProcessor processor = AdaptTo.notNull(adaptable, processorClass);
-        link = processor.process(link);
-        if (link == null) {
-          throw new RuntimeException("LinkPostProcessor '" + processor + "' returned null, page '" + (currentPage != null ? currentPage.getPath() : "-") + "'.");
-        }
+    for (LinkProcessor processor : getPostProcessors()) {
+      link = processor.process(link);
+      if (link == null) {
+        throw new RuntimeException("LinkPostProcessor '" + processor + "' returned null, page '" + (currentPage != null ? currentPage.getPath() : "-") + "'.");
       }
     }
 
     return link;
   }
 
+  /**
+   * @return Instances of all link types configured in link handler config
+   */
+  private List<LinkType> getLinkTypes() {
+    if (linkTypes == null) {
+      List<Class<? extends LinkType>> linkTypeClasses = linkHandlerConfig.getLinkTypes();
+      if (linkTypeClasses == null || linkTypeClasses.isEmpty()) {
+        throw new RuntimeException("No link types defined.");
+      }
+      linkTypes = getDelegates(linkTypeClasses);
+    }
+    return linkTypes;
+  }
+
+  /**
+   * @return Instances of all link pre processors configured in link handler config
+   */
+  private List<LinkProcessor> getPreProcessors() {
+    if (preProcessors == null) {
+      preProcessors = getDelegates(linkHandlerConfig.getPreProcessors());
+    }
+    return preProcessors;
+  }
+
+  /**
+   * @return Instances of all link markup builders configured in link handler config
+   */
+  private List<LinkMarkupBuilder> getMarkupBuilders() {
+    if (markupBuilders == null) {
+      markupBuilders = getDelegates(linkHandlerConfig.getMarkupBuilders());
+    }
+    return markupBuilders;
+  }
+
+  /**
+   * @return Instances of all link post processors configured in link handler config
+   */
+  private List<LinkProcessor> getPostProcessors() {
+    if (postProcessors == null) {
+      postProcessors = getDelegates(linkHandlerConfig.getPostProcessors());
+    }
+    return postProcessors;
+  }
+
+  /**
+   * @param linkTypeId Link type ID
+   * @return Link type instance with the given ID, or null if no such link type is configured
+   */
+  private LinkType getLinkTypeById(String linkTypeId) {
+    if (StringUtils.isEmpty(linkTypeId)) {
+      return null;
+    }
+    if (linkTypesById == null) {
+      linkTypesById = new HashMap<>();
+      for (LinkType linkType : getLinkTypes()) {
+        linkTypesById.putIfAbsent(linkType.getId(), linkType);
+      }
+    }
+    return linkTypesById.get(linkTypeId);
+  }
+
+  /**
+   * Gets delegate instances for the given classes. Each class is adapted only once per link handler instance,
+   * the instances are reused for all links resolved by this link handler.
+   * @param classes Delegate classes
+   * @return Delegate instances
+   */
+  private <T> List<T> getDelegates(List<Class<? extends T>> classes) {
+    if (classes == null || classes.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<T> instances = new ArrayList<>(classes.size());
+    for (Class<? extends T> clazz : classes) {
+      instances.add(getDelegate(clazz));
+    }
+    return instances;
+  }
+
+  private <T> T getDelegate(Class<T> clazz) {
+    Object instance = delegates.get(clazz);
+    if (instance == null) {
+      instance = AdaptTo.notNull(adaptable, clazz);
+      delegates.put(clazz, instance);
+    }
+    return clazz.cast(instance);
+  }
+
 }
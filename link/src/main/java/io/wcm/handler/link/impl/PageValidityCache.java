@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.jetbrains.annotations.NotNull;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.Page;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches whether content pages are valid link targets concerning their jcr:content node and on-/off-time.
+ * Cached entries expire at the next on- or off-time boundary of the page and are invalidated if the page is changed.
+ * Is used only on publish instances, where on-/off-time is checked for link targets. Disabled by default.
+ */
+@Component(service = { PageValidityCache.class, ResourceChangeListener.class }, property = {
+    ResourceChangeListener.PATHS + "=/content"
+})
+@Designate(ocd = PageValidityCache.Config.class)
+public final class PageValidityCache implements ResourceChangeListener, ExternalResourceChangeListener {
+
+  @ObjectClassDefinition(name = "wcm.io Link Handler Page Validity Cache",
+      description = "Caches whether content pages are valid link targets concerning on-/off-time.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Enabled", description = "Enable caching of page validity on publish instances. "
+        + "The validity is cached independently of the access rights of the current user, so enable it only "
+        + "if all users have the same read access to the link target pages.")
+    boolean enabled() default false;
+
+    @AttributeDefinition(name = "Cache max. size", description = "Max. number of pages for which the validity is cached.")
+    long cacheMaxSize() default 10000;
+
+  }
+
+  private static final String DAM_ROOT = "/content/dam";
+
+  private boolean enabled;
+  private Cache<String, Entry> cache;
+
+  @Activate
+  private void activate(Config config) {
+    enabled = config.enabled();
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(config.cacheMaxSize())
+        .build();
+  }
+
+  /**
+   * Checks if the page has a jcr:content node and is valid concerning on-/off-time.
+   * @param page Page
+   * @return true if page is valid
+   */
+  public boolean isValid(@NotNull Page page) {
+    if (!enabled) {
+      return page.hasContent() && page.isValid();
+    }
+    long now = System.currentTimeMillis();
+    Entry entry = cache.getIfPresent(page.getPath());
+    if (entry == null || entry.isExpired(now)) {
+      entry = new Entry(page.hasContent() && page.isValid(), InternalLinkResolveCache.getNextValidityBoundary(page, now));
+      cache.put(page.getPath(), entry);
+    }
+    return entry.isValid();
+  }
+
+  /**
+   * @return Number of cached entries
+   */
+  long size() {
+    return cache.size();
+  }
+
+  @Override
+  public void onChange(@NotNull List<ResourceChange> changes) {
+    for (ResourceChange change : changes) {
+      String path = change.getPath();
+      // assets are not link target pages
+      if (StringUtils.equals(path, DAM_ROOT) || StringUtils.startsWith(path, DAM_ROOT + "/")) {
+        continue;
+      }
+      String pagePath = StringUtils.substringBefore(path, "/" + JcrConstants.JCR_CONTENT);
+      cache.invalidate(pagePath);
+      // removing or moving a page affects all child pages as well
+      if (change.getType() == ChangeType.REMOVED && StringUtils.equals(path, pagePath)) {
+        cache.asMap().keySet().removeIf(key -> StringUtils.startsWith(key, pagePath + "/"));
+      }
+    }
+  }
+
+  /**
+   * Cached page validity.
+   */
+  private static final class Entry {
+
+    private final boolean valid;
+    private final long expiresAt;
+
+    Entry(boolean valid, long expiresAt) {
+      this.valid = valid;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isValid() {
+      return this.valid;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import java.util.function.Supplier;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores request-scoped caches as request attribute named after the cache class.
+ */
+public final class RequestAttributeCache {
+
+  private RequestAttributeCache() {
+    // static methods only
+  }
+
+  /**
+   * Get cache instance of the given type for the current request. It is created on first access.
+   * @param request Request
+   * @param type Cache class
+   * @param factory Creates a new cache instance
+   * @param <T> Cache type
+   * @return Cache instance or null if no request is given
+   */
+  public static <T> @Nullable T get(@Nullable SlingHttpServletRequest request, @NotNull Class<T> type,
+      @NotNull Supplier<T> factory) {
+    if (request == null) {
+      return null;
+    }
+    Object cache = request.getAttribute(type.getName());
+    if (type.isInstance(cache)) {
+      return type.cast(cache);
+    }
+    T newCache = factory.get();
+    request.setAttribute(type.getName(), newCache);
+    return newCache;
+  }
+
+}
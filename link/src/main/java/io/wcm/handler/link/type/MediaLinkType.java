@@ -19,7 +19,9 @@
  */
 package io.wcm.handler.link.type;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
@@ -65,6 +67,9 @@ public final class MediaLinkType extends LinkType {
   @Self
   private MediaHandler mediaHandler;
 
+  // media resolved for media reference, download flag and URL mode
+  private final Map<List<Object>, Media> resolvedMedia = new HashMap<>();
+
   /**
    * @return Link type ID (is stored as identifier in repository)
    */
@@ -105,8 +110,13 @@ public final class MediaLinkType extends LinkType {
         .contentDispositionAttachment(isDownload)
         .urlMode(linkRequest.getLinkArgs().getUrlMode());
 
-    // resolve media library reference
-    Media media = mediaHandler.get(mediaRef, mediaArgs).build();
+    // resolve media library reference - reuse media already resolved by this link type instance
+    List<Object> mediaKey = Arrays.asList(mediaRef, isDownload, mediaArgs.getUrlMode());
+    Media media = resolvedMedia.get(mediaKey);
+    if (media == null) {
+      media = mediaHandler.get(mediaRef, mediaArgs).build();
+      resolvedMedia.put(mediaKey, media);
+    }
 
     if (media != null) {
       // set resovled media references information in link metadata
@@ -19,6 +19,12 @@
  */
 package io.wcm.handler.link.type.helpers;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
@@ -38,11 +44,15 @@ import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.PageManager;
 import com.day.cq.wcm.api.WCMMode;
 
+import io.wcm.handler.commons.dom.Anchor;
 import io.wcm.handler.link.Link;
 import io.wcm.handler.link.LinkArgs;
 import io.wcm.handler.link.LinkHandler;
 import io.wcm.handler.link.LinkNameConstants;
 import io.wcm.handler.link.LinkRequest;
+import io.wcm.handler.link.impl.InternalLinkResolveCache;
+import io.wcm.handler.link.impl.PageValidityCache;
+import io.wcm.handler.link.impl.RequestAttributeCache;
 import io.wcm.handler.link.spi.LinkHandlerConfig;
 import io.wcm.handler.url.UrlHandler;
 import io.wcm.handler.url.spi.UrlHandlerConfig;
@@ -84,6 +94,12 @@ public final class InternalLinkResolver {
   private WCMMode wcmMode;
   @OSGiService
   private SlingSettingsService slingSettings;
+  @SlingObject(injectionStrategy = InjectionStrategy.OPTIONAL)
+  private SlingHttpServletRequest request;
+  @OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+  private InternalLinkResolveCache internalLinkResolveCache;
+  @OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+  private PageValidityCache pageValidityCache;
 
   /**
    * Check if a given page is valid and acceptable to link upon.
@@ -97,14 +113,23 @@ public final class InternalLinkResolver {
       return false;
     }
 
-    // check for jcr:content node
-    if (!page.hasContent()) {
-      return false;
+    boolean publish = RunMode.isPublish(slingSettings.getRunModes());
+    if (publish && pageValidityCache != null) {
+      // check for jcr:content node and on/off-time using cached page validity
+      if (!pageValidityCache.isValid(page)) {
+        return false;
+      }
     }
+    else {
+      // check for jcr:content node
+      if (!page.hasContent()) {
+        return false;
+      }
 
-    // check if page is valid concerning on/off-time (only in publish environment)
-    if (RunMode.isPublish(slingSettings.getRunModes()) && !page.isValid()) {
-      return false;
+      // check if page is valid concerning on/off-time (only in publish environment)
+      if (publish && !page.isValid()) {
+        return false;
+      }
     }
 
     // check if page is acceptable based on link handler config
@@ -126,11 +151,21 @@ public final class InternalLinkResolver {
     LinkRequest linkRequest = link.getLinkRequest();
     ValueMap props = linkRequest.getResourceProperties();
 
+    // check for result of resolving this link in earlier requests
+    String cacheKey = getCacheKey(link, options);
+    if (cacheKey != null) {
+      InternalLinkResolveCache.Entry cachedEntry = internalLinkResolveCache.get(cacheKey);
+      if (cachedEntry != null) {
+        return applyCachedEntry(link, cachedEntry);
+      }
+    }
+
     // flag to indicate whether any link reference parameter set
     boolean referenceSet = false;
 
     // first try to get direct link target page
     Page targetPage = link.getLinkRequest().getPage();
+    Page candidatePage = targetPage;
     if (targetPage != null) {
       referenceSet = true;
     }
@@ -141,7 +176,10 @@ public final class InternalLinkResolver {
       if (StringUtils.isNotEmpty(targetPath)) {
         referenceSet = true;
       }
-      targetPage = getTargetPage(targetPath, options);
+      candidatePage = getTargetPageCandidate(targetPath, options);
+      if (acceptPage(candidatePage, options)) {
+        targetPage = candidatePage;
+      }
     }
 
     UrlHandlerConfig resolvingUrlHandlerConfig = urlHandlerConfig;
@@ -197,12 +235,106 @@ public final class InternalLinkResolver {
     // set link url
     link.setUrl(linkUrl);
 
+    // cache result until target page validity changes
+    if (cacheKey != null) {
+      long expiresAt = InternalLinkResolveCache.getNextValidityBoundary(candidatePage, System.currentTimeMillis());
+      internalLinkResolveCache.put(cacheKey, new InternalLinkResolveCache.Entry(linkUrl,
+          targetPage != null ? targetPage.getPath() : null, getSiteContextPath(),
+          link.isLinkReferenceInvalid(), expiresAt));
+    }
+
+    return link;
+  }
+
+  /**
+   * Build key for caching the result of resolving the link across requests.
+   * The key contains all parameters that influence the resulting URL: link reference, resolver options,
+   * link arguments, current site context, request host and selectors and the user.
+   * @param link Link
+   * @param options Options
+   * @return Cache key or null if link should not be cached
+   */
+  @SuppressWarnings("null")
+  private @Nullable String getCacheKey(@NotNull Link link, @NotNull InternalLinkResolverOptions options) {
+    if (internalLinkResolveCache == null || !internalLinkResolveCache.isEnabled() || request == null) {
+      return null;
+    }
+    LinkRequest linkRequest = link.getLinkRequest();
+    ValueMap props = linkRequest.getResourceProperties();
+    LinkArgs linkArgs = linkRequest.getLinkArgs();
+
+    String linkRef;
+    if (linkRequest.getPage() != null) {
+      linkRef = "page:" + linkRequest.getPage().getPath();
+    }
+    else {
+      linkRef = props.get(options.getPrimaryLinkRefProperty(), String.class);
+      if (StringUtils.isEmpty(linkRef)) {
+        return null;
+      }
+    }
+
+    StringBuilder key = new StringBuilder()
+        .append(linkRef)
+        .append('|').append(options.isRewritePathToContext())
+        .append('|').append(useTargetContext(options))
+        .append('|').append(StringUtils.defaultString(linkArgs.getSelectors()))
+        .append('|').append(StringUtils.defaultString(linkArgs.getExtension()))
+        .append('|').append(StringUtils.defaultString(linkArgs.getSuffix()))
+        .append('|').append(props.get(LinkNameConstants.PN_LINK_QUERY_PARAM, StringUtils.defaultString(linkArgs.getQueryString())))
+        .append('|').append(props.get(LinkNameConstants.PN_LINK_FRAGMENT, StringUtils.defaultString(linkArgs.getFragment())))
+        .append('|').append(linkArgs.getUrlMode() != null ? linkArgs.getUrlMode().getId() : "")
+        .append('|').append(getSiteContextKey())
+        .append('|').append(request.getScheme()).append("://").append(request.getServerName())
+        .append(':').append(request.getServerPort())
+        .append('|').append(StringUtils.defaultString(request.getRequestPathInfo().getSelectorString()))
+        .append('|').append(wcmMode)
+        .append('|').append(StringUtils.defaultString(resourceResolver.getUserID()));
+    return key.toString();
+  }
+
+  /**
+   * The site root and integrator state of the current page influence rewriting paths to the current context and
+   * the URL prefix decision of the URL modes.
+   * @return Key part describing the current site context
+   */
+  private @NotNull String getSiteContextKey() {
+    return StringUtils.defaultString(getSiteContextPath())
+        + (currentPage != null && urlHandlerConfig.isIntegrator(currentPage) ? ":integrator" : "");
+  }
+
+  /**
+   * @return Path of the current site root, current page or current resource
+   */
+  private @Nullable String getSiteContextPath() {
+    if (currentPage == null) {
+      Resource resource = request.getResource();
+      return resource != null ? resource.getPath() : null;
+    }
+    String siteRootPath = null;
+    int siteRootLevel = urlHandlerConfig.getSiteRootLevel(currentPage.getContentResource());
+    if (siteRootLevel >= 0) {
+      siteRootPath = Path.getAbsoluteParent(currentPage.getPath(), siteRootLevel, resourceResolver);
+    }
+    return StringUtils.defaultIfEmpty(siteRootPath, currentPage.getPath());
+  }
+
+  private @NotNull Link applyCachedEntry(@NotNull Link link, @NotNull InternalLinkResolveCache.Entry cachedEntry) {
+    if (cachedEntry.getTargetPagePath() != null) {
+      link.setTargetPage(pageManager.getPage(cachedEntry.getTargetPagePath()));
+    }
+    if (cachedEntry.isLinkReferenceInvalid()) {
+      link.setLinkReferenceInvalid(true);
+    }
+    link.setUrl(cachedEntry.getUrl());
     return link;
   }
 
   /**
    * Resolves link of redirect or integrator page. Those pages contain the link reference information in their
    * content resource (jcr:content node). This information is used to resolve the link.
+   * Within a request the result of resolving a redirect chain is memoized, redirect loops are detected and
+   * resolved to an invalid link without walking the loop multiple times.
    * @param redirectPage Redirect or integrator page
    * @param link Link metadata
    * @return Link metadata
@@ -216,6 +348,23 @@ public final class InternalLinkResolver {
         null,
         linkRequest.getLinkArgs());
 
+    // check for redirect chain already resolved or currently resolved within this request
+    RedirectResolveCache redirectResolveCache = RequestAttributeCache.get(request, RedirectResolveCache.class, RedirectResolveCache::new);
+    String redirectPath = redirectPage.getPath();
+    RedirectResolveCache.Key cacheKey = null;
+    if (redirectResolveCache != null) {
+      cacheKey = new RedirectResolveCache.Key(redirectPath, linkRequest.getLinkArgs());
+      Link resolvedLink = redirectResolveCache.resolvedLinks.get(cacheKey);
+      if (resolvedLink != null) {
+        return copyLink(resolvedLink);
+      }
+      if (redirectResolveCache.redirectPathsInProgress.contains(redirectPath)) {
+        // redirect loop detected - set link to invalid link
+        link.setUrl(null);
+        return link;
+      }
+    }
+
     // check of maximum recursive calls via threadlocal to avoid endless loops, return invalid link if one is detected
     LinkResolveCounter linkResolveCounter = LinkResolveCounter.get();
     try {
@@ -223,25 +372,57 @@ public final class InternalLinkResolver {
 
       if (linkResolveCounter.isMaximumReached()) {
         // endless loop detected - set link to invalid link
+        if (redirectResolveCache != null) {
+          redirectResolveCache.maximumReachedCount++;
+        }
         link.setUrl(null);
         return link;
       }
 
       // resolve link by recursive call to link handler, track recursion count
-      return linkHandler.get(redirectLinkRequest).build();
+      if (redirectResolveCache == null) {
+        return linkHandler.get(redirectLinkRequest).build();
+      }
+      int maximumReachedCount = redirectResolveCache.maximumReachedCount;
+      redirectResolveCache.redirectPathsInProgress.add(redirectPath);
+      try {
+        Link resolvedLink = linkHandler.get(redirectLinkRequest).build();
+        // results depending on the recursion depth are not memoized
+        if (redirectResolveCache.maximumReachedCount == maximumReachedCount) {
+          redirectResolveCache.resolvedLinks.put(cacheKey, copyLink(resolvedLink));
+        }
+        return resolvedLink;
+      }
+      finally {
+        redirectResolveCache.redirectPathsInProgress.remove(redirectPath);
+      }
     }
     finally {
       linkResolveCounter.decreaseCount();
     }
   }
 
+  @SuppressWarnings("null")
+  private static Link copyLink(Link link) {
+    Link copy = new Link(link.getLinkType(), link.getLinkRequest());
+    copy.setLinkReferenceInvalid(link.isLinkReferenceInvalid());
+    copy.setUrl(link.getUrl());
+    copy.setTargetPage(link.getTargetPage());
+    copy.setTargetAsset(link.getTargetAsset());
+    copy.setTargetRendition(link.getTargetRendition());
+    if (link.getAnchor() != null) {
+      copy.setAnchor((Anchor)link.getAnchor().clone());
+    }
+    return copy;
+  }
+
   /**
    * Returns the target page for the given internal content link reference.
-   * Checks validity of page.
+   * Validity of the page has to be checked via {@link #acceptPage(Page, InternalLinkResolverOptions)}.
    * @param targetPath Repository path
    * @return Target page or null if target reference is invalid.
    */
-  private Page getTargetPage(String targetPath, InternalLinkResolverOptions options) {
+  private Page getTargetPageCandidate(String targetPath, InternalLinkResolverOptions options) {
 
     if (StringUtils.isEmpty(targetPath)) {
       return null;
@@ -259,14 +440,8 @@ public final class InternalLinkResolver {
       return null;
     }
 
-    // Get target page referenced by target path and check for acceptance
-    Page targetPage = pageManager.getPage(rewrittenPath);
-    if (acceptPage(targetPage, options)) {
-      return targetPage;
-    }
-    else {
-      return null;
-    }
+    // Get target page referenced by target path
+    return pageManager.getPage(rewrittenPath);
   }
 
   /**
@@ -286,4 +461,44 @@ public final class InternalLinkResolver {
     return false;
   }
 
+  /**
+   * Memoizes resolved redirect chains within a request.
+   */
+  private static final class RedirectResolveCache {
+
+    private final Map<Key, Link> resolvedLinks = new HashMap<>();
+    private final Set<String> redirectPathsInProgress = new HashSet<>();
+    private int maximumReachedCount;
+
+    /**
+     * Redirect page path and link arguments.
+     */
+    private static final class Key {
+
+      private final String redirectPath;
+      private final LinkArgs linkArgs;
+
+      Key(String redirectPath, LinkArgs linkArgs) {
+        this.redirectPath = redirectPath;
+        this.linkArgs = linkArgs.clone();
+      }
+
+      @Override
+      public int hashCode() {
+        return Objects.hash(redirectPath, linkArgs);
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+        if (!(obj instanceof Key)) {
+          return false;
+        }
+        Key other = (Key)obj;
+        return redirectPath.equals(other.redirectPath) && linkArgs.equals(other.linkArgs);
+      }
+
+    }
+
+  }
+
 }
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Calendar;
+
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableList;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+@SuppressWarnings("deprecation")
+class InternalLinkResolveCacheTest {
+
+  private static final long NOW = 1000000L;
+
+  private final AemContext context = new AemContext();
+
+  private InternalLinkResolveCache underTest;
+
+  @BeforeEach
+  void setUp() {
+    underTest = context.registerInjectActivateService(new InternalLinkResolveCache(), "enabled", true);
+  }
+
+  @Test
+  void testDisabledByDefault() {
+    InternalLinkResolveCache cache = context.registerInjectActivateService(new InternalLinkResolveCache());
+    assertFalse(cache.isEnabled());
+    assertTrue(underTest.isEnabled());
+  }
+
+  @Test
+  void testGetPut() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/page1", "/content/site1", false, Long.MAX_VALUE));
+    InternalLinkResolveCache.Entry entry = underTest.get("key1");
+    assertNotNull(entry);
+    assertEquals("/url1.html", entry.getUrl());
+    assertEquals("/content/page1", entry.getTargetPagePath());
+    assertFalse(entry.isLinkReferenceInvalid());
+    assertNull(underTest.get("key2"));
+  }
+
+  @Test
+  void testExpiredEntry() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/page1", "/content/site1", false, 0L));
+    assertNull(underTest.get("key1"));
+    assertEquals(0, underTest.size());
+  }
+
+  @Test
+  void testInvalidateOnPageChange() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/page1", "/content/site1", false, Long.MAX_VALUE));
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/dam/asset1.jpg", false, null, null, null)));
+    assertEquals(1, underTest.size());
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/page1/jcr:content", false, null, null, null)));
+    assertEquals(0, underTest.size());
+  }
+
+  @Test
+  void testInvalidateOnlyDependentEntries() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/site1/page1", "/content/site1", false, Long.MAX_VALUE));
+    underTest.put("key2", new InternalLinkResolveCache.Entry("/url2.html", "/content/site1/page2", "/content/site1", false, Long.MAX_VALUE));
+    underTest.put("key3", new InternalLinkResolveCache.Entry("/url3.html", "/content/site2/page3", "/content/site2", false, Long.MAX_VALUE));
+
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/site1/page1/jcr:content/par/text", false, null, null, null)));
+    assertNull(underTest.get("key1"));
+    assertNotNull(underTest.get("key2"));
+    assertNotNull(underTest.get("key3"));
+
+    // change of site root affects all target pages and links resolved within the site
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/site1/jcr:content", false, null, null, null)));
+    assertNull(underTest.get("key2"));
+    assertNotNull(underTest.get("key3"));
+  }
+
+  @Test
+  void testInvalidateContextPath() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/site2/page1", "/content/site1", false, Long.MAX_VALUE));
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/site1/jcr:content", false, null, null, null)));
+    assertEquals(0, underTest.size());
+  }
+
+  @Test
+  void testInvalidateInvalidLinksOnPageAdded() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/site1/page1", "/content/site1", false, Long.MAX_VALUE));
+    underTest.put("key2", new InternalLinkResolveCache.Entry(null, null, "/content/site1", true, Long.MAX_VALUE));
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.ADDED, "/content/site2/newpage", false, null, null, null)));
+    assertNotNull(underTest.get("key1"));
+    assertNull(underTest.get("key2"));
+  }
+
+  @Test
+  void testIgnoreUserGeneratedContent() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry(null, null, "/content/site1", true, Long.MAX_VALUE));
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.ADDED, "/content/usergenerated/content/site1/comment1", false, null, null, null)));
+    assertEquals(1, underTest.size());
+  }
+
+  @Test
+  void testInvalidateAllOnMappingChange() {
+    underTest.put("key1", new InternalLinkResolveCache.Entry("/url1.html", "/content/site1/page1", "/content/site1", false, Long.MAX_VALUE));
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/etc/map/http/example.com", false, null, null, null)));
+    assertEquals(0, underTest.size());
+  }
+
+  @Test
+  void testGetNextValidityBoundary() {
+    assertEquals(Long.MAX_VALUE, InternalLinkResolveCache.getNextValidityBoundary(null, NOW));
+    assertEquals(Long.MAX_VALUE, InternalLinkResolveCache.getNextValidityBoundary(page(null, null), NOW));
+    assertEquals(Long.MAX_VALUE, InternalLinkResolveCache.getNextValidityBoundary(page(NOW - 10, NOW - 5), NOW));
+    assertEquals(NOW + 10, InternalLinkResolveCache.getNextValidityBoundary(page(NOW + 10, null), NOW));
+    assertEquals(NOW + 20, InternalLinkResolveCache.getNextValidityBoundary(page(NOW - 10, NOW + 20), NOW));
+    assertEquals(NOW + 10, InternalLinkResolveCache.getNextValidityBoundary(page(NOW + 10, NOW + 20), NOW));
+  }
+
+  private static Page page(Long onTime, Long offTime) {
+    Page page = mock(Page.class);
+    when(page.getOnTime()).thenReturn(calendar(onTime));
+    when(page.getOffTime()).thenReturn(calendar(offTime));
+    return page;
+  }
+
+  private static Calendar calendar(Long time) {
+    if (time == null) {
+      return null;
+    }
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    return calendar;
+  }
+
+}
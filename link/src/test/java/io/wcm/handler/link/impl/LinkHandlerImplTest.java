@@ -23,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
@@ -106,6 +107,45 @@ class LinkHandlerImplTest {
 
   }
 
+  @Test
+  void testDelegatesAdaptedOncePerLinkHandler() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+    int instanceCount = TestLinkType.INSTANCE_COUNT.get();
+
+    for (int i = 0; i < 3; i++) {
+      SyntheticLinkResource linkResource = new SyntheticLinkResource(context.resourceResolver(),
+          ImmutableValueMap.builder()
+          .put(LinkNameConstants.PN_LINK_TYPE, "dummy")
+          .put("dummyLinkRef", "/path" + i)
+          .build());
+      Link link = linkHandler.get(linkResource).build();
+      assertEquals("http://xyz/path" + i + "/pre1/post1", link.getUrl());
+    }
+
+    assertEquals(instanceCount + 1, TestLinkType.INSTANCE_COUNT.get());
+  }
+
+  @Test
+  void testResourceLinks() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    List<Resource> linkResources = ImmutableList.of(
+        new SyntheticLinkResource(context.resourceResolver(), ImmutableValueMap.of(
+            LinkNameConstants.PN_LINK_TYPE, "dummy", "dummyLinkRef", "/path1")),
+        new SyntheticLinkResource(context.resourceResolver(), ImmutableValueMap.of(
+            LinkNameConstants.PN_LINK_TYPE, "dummy", "dummyLinkRef", "/path2")));
+    LinkArgs linkArgs = new LinkArgs().urlMode(UrlModes.DEFAULT);
+
+    List<Link> links = linkHandler.getResourceLinks(linkResources, linkArgs);
+
+    assertEquals(2, links.size());
+    assertEquals("http://xyz/path1/pre1/post1", links.get(0).getUrl());
+    assertEquals("http://xyz/path2/pre1/post1", links.get(1).getUrl());
+
+    // make sure shared link args are unmodified
+    assertEquals(UrlModes.DEFAULT, linkArgs.getUrlMode());
+  }
+
 
   public static class TestLinkHandlerConfig extends LinkHandlerConfig {
 
@@ -153,6 +193,12 @@ class LinkHandlerImplTest {
   })
   public static class TestLinkType extends LinkType {
 
+    static final AtomicInteger INSTANCE_COUNT = new AtomicInteger();
+
+    public TestLinkType() {
+      INSTANCE_COUNT.incrementAndGet();
+    }
+
     @Override
     public String getId() {
       return "dummy";
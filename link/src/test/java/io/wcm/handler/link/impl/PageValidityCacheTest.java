@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.link.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableList;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+@SuppressWarnings("deprecation")
+class PageValidityCacheTest {
+
+  private final AemContext context = new AemContext();
+
+  private PageValidityCache underTest;
+
+  @BeforeEach
+  void setUp() {
+    underTest = context.registerInjectActivateService(new PageValidityCache(), "enabled", true);
+  }
+
+  @Test
+  void testValidityCached() {
+    Page page = page("/content/page1", true, true);
+    assertTrue(underTest.isValid(page));
+    assertTrue(underTest.isValid(page));
+    verify(page, times(1)).isValid();
+    assertEquals(1, underTest.size());
+  }
+
+  @Test
+  void testInvalidPage() {
+    assertFalse(underTest.isValid(page("/content/page1", false, true)));
+    assertFalse(underTest.isValid(page("/content/page2", true, false)));
+  }
+
+  @Test
+  void testDisabled() {
+    PageValidityCache cache = context.registerInjectActivateService(new PageValidityCache());
+    Page page = page("/content/page1", true, true);
+    assertTrue(cache.isValid(page));
+    assertTrue(cache.isValid(page));
+    verify(page, times(2)).isValid();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void testInvalidateOnPageChange() {
+    underTest.isValid(page("/content/page1", true, true));
+    underTest.isValid(page("/content/page2", true, true));
+
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/dam/asset1.jpg", false, null, null, null)));
+    assertEquals(2, underTest.size());
+
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/page1/jcr:content", false, null, null, null)));
+    assertEquals(1, underTest.size());
+  }
+
+  @Test
+  void testInvalidateOnParentPageRemoval() {
+    underTest.isValid(page("/content/page1", true, true));
+    underTest.isValid(page("/content/page1/page11", true, true));
+    underTest.isValid(page("/content/page10", true, true));
+
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.REMOVED, "/content/page1", false, null, null, null)));
+    assertEquals(1, underTest.size());
+  }
+
+  private static Page page(String path, boolean hasContent, boolean valid) {
+    Page page = mock(Page.class);
+    when(page.getPath()).thenReturn(path);
+    when(page.hasContent()).thenReturn(hasContent);
+    when(page.isValid()).thenReturn(valid);
+    return page;
+  }
+
+}
@@ -22,9 +22,12 @@ package io.wcm.handler.link.type;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
@@ -35,10 +38,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.WCMMode;
+import com.google.common.collect.ImmutableList;
 
 import io.wcm.handler.link.Link;
+import io.wcm.handler.link.LinkArgs;
 import io.wcm.handler.link.LinkHandler;
 import io.wcm.handler.link.LinkNameConstants;
+import io.wcm.handler.link.LinkRequest;
 import io.wcm.handler.link.SyntheticLinkResource;
 import io.wcm.handler.link.testcontext.AppAemContext;
 import io.wcm.handler.link.testcontext.DummyAppTemplate;
@@ -176,6 +182,24 @@ class InternalLinkTypeTest {
     assertNotNull(link.getAnchor(), "anchor");
   }
 
+  @Test
+  void testTargetPage_OtherLinkTypeProperty() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    SyntheticLinkResource linkResource = new SyntheticLinkResource(context.resourceResolver(),
+        ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, ExternalLinkType.ID)
+        .put(LinkNameConstants.PN_LINK_EXTERNAL_REF, "http://xyz/abc")
+        .build());
+
+    // direct page link wins over link type stored in link resource
+    Link link = linkHandler.get(new LinkRequest(linkResource, targetPage, null)).build();
+
+    assertTrue(link.isValid(), "link valid");
+    assertEquals(InternalLinkType.ID, link.getLinkType().getId(), "link type");
+    assertEquals("http://www.dummysite.org/content/unittest/de_test/brand/de/section/content.html", link.getUrl(), "link url");
+  }
+
   @Test
   void testStructureElement() {
     LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
@@ -314,6 +338,56 @@ class InternalLinkTypeTest {
     assertNull(link.getAnchor(), "anchor");
   }
 
+  @Test
+  void testRedirectChainMemoizedPerRequest() throws Exception {
+    if (!(adaptable() instanceof SlingHttpServletRequest)) {
+      return;
+    }
+
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    Page redirectInternalPage = context.create().page("/content/unittest/de_test/brand/de/section/redirectInternal",
+        DummyAppTemplate.REDIRECT.getTemplatePath(), ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, InternalLinkType.ID)
+        .put(LinkNameConstants.PN_LINK_CONTENT_REF, targetPage.getPath())
+        .build());
+
+    Page redirectRedirectInternalPage = context.create().page("/content/unittest/de_test/brand/de/section/redirectRedirectInternal",
+        DummyAppTemplate.REDIRECT.getTemplatePath(), ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, InternalLinkType.ID)
+        .put(LinkNameConstants.PN_LINK_CONTENT_REF, redirectInternalPage.getPath())
+        .build());
+
+    Link link1 = linkHandler.get(redirectRedirectInternalPage).build();
+    assertTrue(link1.isValid(), "link valid");
+
+    // remove target page - resolved redirect chain is reused within the same request
+    context.resourceResolver().delete(context.resourceResolver().getResource(targetPage.getPath()));
+
+    Link link2 = linkHandler.get(redirectRedirectInternalPage).build();
+    assertTrue(link2.isValid(), "link valid");
+    assertEquals("http://www.dummysite.org/content/unittest/de_test/brand/de/section/content.html", link2.getUrl(), "link url");
+    assertNotNull(link2.getAnchor(), "anchor");
+    assertNotSame(link1.getAnchor(), link2.getAnchor(), "anchor");
+  }
+
+  @Test
+  void testPageLinks() throws Exception {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    Page targetPage2 = context.create().page("/content/unittest/de_test/brand/de/section/content2",
+        DummyAppTemplate.CONTENT.getTemplatePath());
+
+    List<Link> links = linkHandler.getPageLinks(ImmutableList.of(targetPage, targetPage2),
+        new LinkArgs().selectors("sel1"));
+
+    assertEquals(2, links.size());
+    assertEquals("http://www.dummysite.org/content/unittest/de_test/brand/de/section/content.sel1.html",
+        links.get(0).getUrl(), "link url");
+    assertEquals("http://www.dummysite.org/content/unittest/de_test/brand/de/section/content2.sel1.html",
+        links.get(1).getUrl(), "link url");
+  }
+
   @Test
   void testIntegrator() throws Exception {
     LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
@@ -151,6 +151,36 @@ class MediaLinkTypeTest {
     assertNotNull(link.getAnchor(), "anchor");
   }
 
+  @Test
+  void testSameMediaRefMultipleLinks() {
+    LinkHandler linkHandler = AdaptTo.notNull(adaptable(), LinkHandler.class);
+
+    for (int i = 0; i < 2; i++) {
+      SyntheticLinkResource linkResource = new SyntheticLinkResource(context.resourceResolver(),
+          ImmutableValueMap.builder()
+          .put(LinkNameConstants.PN_LINK_TYPE, MediaLinkType.ID)
+          .put(LinkNameConstants.PN_LINK_MEDIA_REF, "/content/dummymedia/pdf1")
+          .build());
+
+      Link link = linkHandler.get(linkResource).build();
+
+      assertTrue(link.isValid(), "link valid");
+      assertEquals("/content/dummymedia/pdf1.pdf", link.getUrl(), "link url");
+      assertNotNull(link.getAnchor(), "anchor");
+    }
+
+    SyntheticLinkResource invalidLinkResource = new SyntheticLinkResource(context.resourceResolver(),
+        ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, MediaLinkType.ID)
+        .put(LinkNameConstants.PN_LINK_MEDIA_REF, "/invalid/media/link")
+        .build());
+
+    Link link = linkHandler.get(invalidLinkResource).build();
+
+    assertFalse(link.isValid(), "link valid");
+    assertTrue(link.isLinkReferenceInvalid(), "link ref invalid");
+  }
+
   @Test
   void testGetSyntheticLinkResource() {
     Resource resource = MediaLinkType.getSyntheticLinkResource(context.resourceResolver(), "/media/ref");
@@ -24,16 +24,20 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableList;
 
 import io.wcm.handler.link.Link;
 import io.wcm.handler.link.LinkNameConstants;
 import io.wcm.handler.link.LinkRequest;
 import io.wcm.handler.link.SyntheticLinkResource;
+import io.wcm.handler.link.impl.InternalLinkResolveCache;
 import io.wcm.handler.link.testcontext.AppAemContext;
 import io.wcm.handler.link.testcontext.DummyAppTemplate;
 import io.wcm.handler.link.type.InternalLinkType;
@@ -130,4 +134,40 @@ class InternalLinkResolverTest {
     assertEquals("http://en.dummysite.org/content/unittest/en_test/brand/en/section/content.html", link.getUrl(), "link url");
   }
 
+  @Test
+  @SuppressWarnings("deprecation")
+  void testResolveLinkCachedAcrossRequests() throws Exception {
+    InternalLinkResolveCache cache = context.registerInjectActivateService(new InternalLinkResolveCache(),
+        "enabled", true);
+    String targetPath = "/content/unittest/de_test/brand/de/section/content";
+    String expectedUrl = "http://www.dummysite.org/content/unittest/de_test/brand/de/section/content.html";
+
+    assertEquals(expectedUrl, resolveInternalLink(targetPath).getUrl(), "link url");
+
+    // remove page without commit (no change event) - link result is taken from cache
+    context.resourceResolver().delete(context.resourceResolver().getResource(targetPath));
+    assertEquals(expectedUrl, resolveInternalLink(targetPath).getUrl(), "link url");
+
+    // invalidate cache by page change event
+    cache.onChange(ImmutableList.of(new ResourceChange(ChangeType.REMOVED, targetPath, false, null, null, null)));
+    Link link = resolveInternalLink(targetPath);
+    assertFalse(link.isValid(), "link valid");
+    assertTrue(link.isLinkReferenceInvalid(), "link ref invalid");
+  }
+
+  private Link resolveInternalLink(String targetPath) {
+    InternalLinkResolver resolver = AdaptTo.notNull(context.request(), InternalLinkResolver.class);
+
+    SyntheticLinkResource linkResource = new SyntheticLinkResource(context.resourceResolver(), ImmutableValueMap.builder()
+        .put(LinkNameConstants.PN_LINK_TYPE, InternalLinkType.ID)
+        .put(LinkNameConstants.PN_LINK_CONTENT_REF, targetPath)
+        .build());
+
+    LinkRequest linkRequest = new LinkRequest(linkResource, null, null);
+    Link link = new Link(new InternalLinkType(), linkRequest);
+
+    return resolver.resolveLink(link, new InternalLinkResolverOptions()
+        .rewritePathToContext(true));
+  }
+
 }
@@ -33,7 +33,10 @@ import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import io.wcm.handler.media.spi.MediaHandlerConfig;
+import io.wcm.sling.commons.adapter.AdaptTo;
 import io.wcm.sling.commons.request.RequestPath;
 import io.wcm.wcm.commons.caching.CacheHeader;
 import io.wcm.wcm.commons.contenttype.ContentType;
@@ -55,6 +58,11 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
    */
   public static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
 
+  static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+  static final String HEADER_RANGE = "Range";
+  static final String HEADER_IF_RANGE = "If-Range";
+  static final String HEADER_CONTENT_RANGE = "Content-Range";
+
   @Override
   protected void doGet(@NotNull SlingHttpServletRequest request, @NotNull SlingHttpServletResponse response) throws ServletException, IOException {
 
@@ -70,8 +78,23 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
       return;
     }
 
+    // stream binary data unchanged if no processing is required
+    if (isStreamBinaryData(resource, request)) {
+      if (!streamBinaryData(resource, request, response)) {
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      }
+      return;
+    }
+
     // get binary data and send to client
-    byte[] binaryData = getBinaryData(resource, request);
+    byte[] binaryData;
+    try {
+      binaryData = getBinaryData(resource, request);
+    }
+    catch (HttpStatusException ex) {
+      response.sendError(ex.getStatus());
+      return;
+    }
     if (binaryData == null || binaryData.length == 0) {
       response.sendError(HttpServletResponse.SC_NOT_FOUND);
     }
@@ -91,6 +114,22 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
     return request.getResource();
   }
 
+  /**
+   * @return Selector identifying this servlet in {@link MediaHandlerConfig#getMediaFileCacheMaxAge(String)}
+   */
+  protected abstract String getServletSelector();
+
+  /**
+   * Get additional data that influences the response and has to be part of the ETag
+   * beside resource path, modification date, selectors and suffix.
+   * @param resource Resource pointing to nt:file or nt:resource node
+   * @param request Request
+   * @return Additional data or null
+   */
+  protected @Nullable String getETagAdditionalData(Resource resource, SlingHttpServletRequest request) {
+    return null;
+  }
+
   /**
    * Checks if the resource was modified since last request
    * @param resource Resource pointing to nt:file or nt:resource node
@@ -101,12 +140,119 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
    */
   protected boolean isNotModified(Resource resource, SlingHttpServletRequest request,
       SlingHttpServletResponse response) throws IOException {
+    MediaHandlerConfig config = AdaptTo.notNull(request, MediaHandlerConfig.class);
+    String selector = getServletSelector();
+    MediaFileCacheHeader.setCacheControl(response, config.getMediaFileCacheMaxAge(selector),
+        config.isMediaFileCacheImmutable(selector));
+
+    // check ETag against If-None-Match header - if present, If-Modified-Since is ignored
+    String etag = MediaFileCacheHeader.buildETag(resource, request, getETagAdditionalData(resource, request));
+    if (MediaFileCacheHeader.isNotModified(etag, request, response)) {
+      return true;
+    }
+    if (MediaFileCacheHeader.hasIfNoneMatch(request)) {
+      return false;
+    }
+
     // check resource's modification date against the If-Modified-Since header and send 304 if resource wasn't modified
     // never send expires header on author or publish instance (performance optimization - if medialib items changes
     // users have to refresh browsers cache)
     return CacheHeader.isNotModified(resource, request, response, false);
   }
 
+  /**
+   * Checks if the binary data of the resource can be streamed unchanged to the client.
+   * @param resource Resource pointing to nt:file or nt:resource node
+   * @param request Request
+   * @return true if binary data is streamed via {@link #streamBinaryData(Resource, SlingHttpServletRequest,
+   *         SlingHttpServletResponse)}, false if it is processed via
+   *         {@link #getBinaryData(Resource, SlingHttpServletRequest)}
+   */
+  protected boolean isStreamBinaryData(Resource resource, SlingHttpServletRequest request) {
+    return true;
+  }
+
+  /**
+   * Streams the binary data from the referenced nt:file or nt:resource resource unchanged to the client.
+   * If the content length is known, single byte ranges requested via Range header are supported.
+   * @param resource Resource pointing to nt:file or nt:resource node
+   * @param request Request
+   * @param response Response
+   * @return true if binary data was sent, false if no binary data was found
+   * @throws IOException
+   */
+  protected boolean streamBinaryData(Resource resource, SlingHttpServletRequest request,
+      SlingHttpServletResponse response) throws IOException {
+    long contentLength = resource.getResourceMetadata().getContentLength();
+    InputStream is = resource.adaptTo(InputStream.class);
+    if (is == null) {
+      return false;
+    }
+    try {
+      String contentType = getContentType(resource, request);
+
+      // content length unknown - fallback to buffering binary data
+      if (contentLength < 0) {
+        byte[] binaryData = IOUtils.toByteArray(is);
+        if (binaryData.length == 0) {
+          return false;
+        }
+        sendBinaryData(binaryData, contentType, request, response);
+        return true;
+      }
+      if (contentLength == 0) {
+        return false;
+      }
+
+      setContentTypeAndDisposition(contentType, request, response);
+      response.setHeader(HEADER_ACCEPT_RANGES, "bytes");
+
+      ByteRange range = ByteRange.parse(getRangeHeader(request, response), contentLength);
+      if (range == ByteRange.UNSATISFIABLE) {
+        response.setHeader(HEADER_CONTENT_RANGE, range.toContentRange(contentLength));
+        response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        return true;
+      }
+
+      OutputStream out = response.getOutputStream();
+      if (range != null) {
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HEADER_CONTENT_RANGE, range.toContentRange(contentLength));
+        setContentLength(response, range.getLength());
+        IOUtils.copyLarge(is, out, range.getStart(), range.getLength());
+      }
+      else {
+        setContentLength(response, contentLength);
+        IOUtils.copyLarge(is, out);
+      }
+      out.flush();
+      return true;
+    }
+    finally {
+      is.close();
+    }
+  }
+
+  /**
+   * Get Range header value, respecting an optional If-Range header with the current ETag.
+   */
+  private static String getRangeHeader(SlingHttpServletRequest request, SlingHttpServletResponse response) {
+    String ifRange = request.getHeader(HEADER_IF_RANGE);
+    if (ifRange != null && !StringUtils.equals(ifRange, response.getHeader(MediaFileCacheHeader.HEADER_ETAG))) {
+      return null;
+    }
+    return request.getHeader(HEADER_RANGE);
+  }
+
+  private static void setContentLength(SlingHttpServletResponse response, long contentLength) {
+    if (contentLength <= Integer.MAX_VALUE) {
+      response.setContentLength((int)contentLength);
+    }
+    else {
+      response.setHeader("Content-Length", Long.toString(contentLength));
+    }
+  }
+
   /**
    * Get binary data from the referenced nt:file or nt:resourcer resource.
    * @param resource Resource
@@ -126,6 +272,26 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
     }
   }
 
+  /**
+   * Thrown by {@link #getBinaryData(Resource, SlingHttpServletRequest)} to respond with
+   * a specific HTTP status code instead of delivering binary data.
+   */
+  static final class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    HttpStatusException(int status) {
+      super("HTTP status " + status);
+      this.status = status;
+    }
+
+    int getStatus() {
+      return this.status;
+    }
+
+  }
+
   /**
    * Get content type from the reference nt:file or nt:resourcer resource.
    * @param resource Resource
@@ -151,9 +317,26 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
       SlingHttpServletRequest request, SlingHttpServletResponse response) throws IOException {
 
     // set content type and length
-    response.setContentType(contentType);
+    setContentTypeAndDisposition(contentType, request, response);
     response.setContentLength(binaryData.length);
 
+    // write binary data
+    OutputStream out = response.getOutputStream();
+    out.write(binaryData);
+    out.flush();
+
+  }
+
+  /**
+   * Set content type and respect optional content disposition header handling.
+   * @param contentType Content type
+   * @param request Request
+   * @param response Response
+   */
+  private void setContentTypeAndDisposition(String contentType,
+      SlingHttpServletRequest request, SlingHttpServletResponse response) {
+    response.setContentType(contentType);
+
     // Handling of the "force download" selector
     if (RequestPath.hasSelector(request, SELECTOR_DOWNLOAD)) {
       // Overwrite MIME type with one suited for downloads
@@ -169,12 +352,6 @@ abstract class AbstractMediaFileServlet extends SlingSafeMethodsServlet {
 
       response.setHeader(HEADER_CONTENT_DISPOSITION, dispositionHeader.toString());
     }
-
-    // write binary data
-    OutputStream out = response.getOutputStream();
-    out.write(binaryData);
-    out.flush();
-
   }
 
 }
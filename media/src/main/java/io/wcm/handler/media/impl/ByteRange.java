@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single byte range parsed from a HTTP Range header as defined in RFC 7233.
+ */
+final class ByteRange {
+
+  /**
+   * Range that cannot be satisfied for the given content length.
+   */
+  static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+  private static final String BYTES_UNIT = "bytes=";
+
+  private final long start;
+  private final long end;
+
+  private ByteRange(long start, long end) {
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return First byte position (inclusive)
+   */
+  long getStart() {
+    return this.start;
+  }
+
+  /**
+   * @return Last byte position (inclusive)
+   */
+  long getEnd() {
+    return this.end;
+  }
+
+  /**
+   * @return Number of bytes in range
+   */
+  long getLength() {
+    return this.end - this.start + 1;
+  }
+
+  /**
+   * @param contentLength Full content length
+   * @return Value for Content-Range header
+   */
+  String toContentRange(long contentLength) {
+    if (this == UNSATISFIABLE) {
+      return "bytes */" + contentLength;
+    }
+    return "bytes " + start + "-" + end + "/" + contentLength;
+  }
+
+  /**
+   * Parses a Range header. Only single byte ranges are supported, multiple ranges or invalid syntax are ignored.
+   * @param header Range header value
+   * @param contentLength Full content length
+   * @return Byte range, {@link #UNSATISFIABLE} or null if the full content should be delivered
+   */
+  static @Nullable ByteRange parse(@Nullable String header, long contentLength) {
+    if (!StringUtils.startsWith(header, BYTES_UNIT) || StringUtils.contains(header, ',')) {
+      return null;
+    }
+    String spec = StringUtils.trim(StringUtils.substringAfter(header, BYTES_UNIT));
+    int separator = spec.indexOf('-');
+    if (separator < 0) {
+      return null;
+    }
+    String startValue = StringUtils.trim(spec.substring(0, separator));
+    String endValue = StringUtils.trim(spec.substring(separator + 1));
+
+    // suffix range: last n bytes
+    if (startValue.isEmpty()) {
+      if (!NumberUtils.isDigits(endValue)) {
+        return null;
+      }
+      long suffixLength = NumberUtils.toLong(endValue);
+      if (suffixLength == 0) {
+        return UNSATISFIABLE;
+      }
+      return new ByteRange(Math.max(0, contentLength - suffixLength), contentLength - 1);
+    }
+
+    if (!NumberUtils.isDigits(startValue) || !(endValue.isEmpty() || NumberUtils.isDigits(endValue))) {
+      return null;
+    }
+    long start = NumberUtils.toLong(startValue);
+    long end = endValue.isEmpty() ? contentLength - 1 : Math.min(NumberUtils.toLong(endValue), contentLength - 1);
+    if (endValue.length() > 0 && NumberUtils.toLong(endValue) < start) {
+      return null;
+    }
+    if (start >= contentLength) {
+      return UNSATISFIABLE;
+    }
+    return new ByteRange(start, end);
+  }
+
+}
@@ -36,7 +36,9 @@ import com.day.image.Font;
 import com.day.image.Layer;
 import com.day.image.font.AbstractFont;
 
+import io.wcm.handler.media.spi.MediaHandlerConfig;
 import io.wcm.handler.url.suffix.SuffixParser;
+import io.wcm.sling.commons.adapter.AdaptTo;
 import io.wcm.wcm.commons.contenttype.FileExtension;
 
 /**
@@ -70,6 +72,11 @@ public final class DummyImageServlet extends AbstractImageServlet {
    */
   public static final @NotNull String SUFFIX_MEDIA_FORMAT_NAME = "mf";
 
+  /**
+   * Identifies this servlet in {@link MediaHandlerConfig#getMediaFileCacheMaxAge(String)}
+   */
+  static final @NotNull String SERVLET_SELECTOR = "dummy_image";
+
   @SuppressWarnings("null")
   @Override
   protected Layer createLayer(ImageContext ctx) throws RepositoryException, IOException {
@@ -112,8 +119,14 @@ public final class DummyImageServlet extends AbstractImageServlet {
   }
 
   @Override
-  protected boolean checkModifiedSince(SlingHttpServletRequest pReq, SlingHttpServletResponse pResp) {
-    return false;
+  protected boolean checkModifiedSince(SlingHttpServletRequest request, SlingHttpServletResponse response) {
+    MediaHandlerConfig config = AdaptTo.notNull(request, MediaHandlerConfig.class);
+    MediaFileCacheHeader.setCacheControl(response, config.getMediaFileCacheMaxAge(SERVLET_SELECTOR),
+        config.isMediaFileCacheImmutable(SERVLET_SELECTOR));
+
+    // dummy image depends only on the request path - no modification date involved
+    String etag = MediaFileCacheHeader.buildETag(request.getRequestPathInfo().getResourcePath(), null, request, null);
+    return MediaFileCacheHeader.isNotModified(etag, request, response);
   }
 
 }
@@ -0,0 +1,260 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.day.image.Layer;
+
+import io.wcm.handler.media.spi.MediaHandlerConfig;
+import io.wcm.wcm.commons.contenttype.ContentType;
+
+/**
+ * Encodes layers to JPEG or PNG applying the encoder settings from {@link MediaHandlerConfig}.
+ * Only the encoders shipped with the JDK (ImageIO) are used. If no special encoder settings are configured
+ * the Layer API is used for encoding.
+ */
+final class ImageFileEncoder {
+
+  private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+  private static final int MAX_PALETTE_SIZE = 256;
+
+  private ImageFileEncoder() {
+    // static methods only
+  }
+
+  /**
+   * Encode layer to the given content type.
+   * @param layer Layer
+   * @param contentType Output content type
+   * @param config Media handler config
+   * @return Binary data
+   * @throws IOException I/O exception
+   */
+  static byte[] encode(@NotNull Layer layer, @NotNull String contentType, @NotNull MediaHandlerConfig config)
+      throws IOException {
+    double quality = config.getDefaultImageQuality(contentType);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+    if (isJpeg(contentType) && (config.isJpegProgressive() || !config.isJpegChromaSubsampling())) {
+      writeJpeg(layer.getImage(), (float)quality, config.isJpegProgressive(), config.isJpegChromaSubsampling(), bos);
+    }
+    else if (isPng(contentType) && (config.getPngCompressionLevel() >= 0 || config.isPngPaletteReduction())) {
+      BufferedImage image = layer.getImage();
+      if (config.isPngPaletteReduction()) {
+        BufferedImage paletteImage = toPaletteImage(image);
+        if (paletteImage != null) {
+          image = paletteImage;
+        }
+      }
+      writePng(image, config.getPngCompressionLevel(), bos);
+    }
+    else {
+      layer.write(contentType, quality, bos);
+    }
+
+    bos.flush();
+    return bos.toByteArray();
+  }
+
+  /**
+   * Checks if the given layer can be encoded to the given content type without losing information
+   * other than by lossy compression.
+   * @param layer Layer
+   * @param contentType Content type
+   * @return true if JPEG is requested for an opaque image, or PNG is requested
+   */
+  static boolean canEncode(@NotNull Layer layer, @NotNull String contentType) {
+    if (isJpeg(contentType)) {
+      return !layer.getImage().getColorModel().hasAlpha();
+    }
+    return isPng(contentType);
+  }
+
+  static boolean isJpeg(@Nullable String contentType) {
+    return StringUtils.equalsIgnoreCase(contentType, ContentType.JPEG);
+  }
+
+  static boolean isPng(@Nullable String contentType) {
+    return StringUtils.equalsIgnoreCase(contentType, ContentType.PNG);
+  }
+
+  private static void writeJpeg(BufferedImage source, float quality, boolean progressive, boolean chromaSubsampling,
+      ByteArrayOutputStream bos) throws IOException {
+    BufferedImage image = toRgbImage(source);
+    ImageWriter writer = getWriter(ContentType.JPEG);
+    try {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(Math.min(quality, 1f));
+      if (progressive) {
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+      }
+      IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+      if (!chromaSubsampling) {
+        disableChromaSubsampling(metadata);
+      }
+      write(writer, new IIOImage(image, null, metadata), param, bos);
+    }
+    finally {
+      writer.dispose();
+    }
+  }
+
+  private static void writePng(BufferedImage image, int compressionLevel, ByteArrayOutputStream bos) throws IOException {
+    ImageWriter writer = getWriter(ContentType.PNG);
+    try {
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      // deflate level is only supported by JDK 9 and higher
+      if (compressionLevel >= 0 && param.canWriteCompressed()) {
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(1f - Math.min(compressionLevel, 9) / 9f);
+      }
+      write(writer, new IIOImage(image, null, null), param, bos);
+    }
+    finally {
+      writer.dispose();
+    }
+  }
+
+  private static void write(ImageWriter writer, IIOImage image, ImageWriteParam param, ByteArrayOutputStream bos)
+      throws IOException {
+    try (ImageOutputStream ios = ImageIO.createImageOutputStream(bos)) {
+      writer.setOutput(ios);
+      writer.write(null, image, param);
+    }
+  }
+
+  private static ImageWriter getWriter(String contentType) throws IOException {
+    Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(contentType);
+    if (!writers.hasNext()) {
+      throw new IOException("No image writer found for " + contentType);
+    }
+    return writers.next();
+  }
+
+  /**
+   * Sets sampling factor 1 for all components (4:4:4) in JPEG image metadata.
+   */
+  private static void disableChromaSubsampling(IIOMetadata metadata) throws IOException {
+    Node tree = metadata.getAsTree(JPEG_METADATA_FORMAT);
+    NodeList componentSpecs = ((Element)tree).getElementsByTagName("componentSpec");
+    for (int i = 0; i < componentSpecs.getLength(); i++) {
+      Element componentSpec = (Element)componentSpecs.item(i);
+      componentSpec.setAttribute("HsamplingFactor", "1");
+      componentSpec.setAttribute("VsamplingFactor", "1");
+    }
+    metadata.setFromTree(JPEG_METADATA_FORMAT, tree);
+  }
+
+  /**
+   * JPEG encoder does not support alpha channels - paint image on white background.
+   */
+  private static BufferedImage toRgbImage(BufferedImage source) {
+    if (source.getType() == BufferedImage.TYPE_INT_RGB || source.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+      return source;
+    }
+    BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.drawImage(source, 0, 0, Color.WHITE, null);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * Converts the image to an indexed color image if it contains not more than 256 distinct colors.
+   * The conversion is lossless.
+   * @param source Source image
+   * @return Indexed image or null if the image contains too many colors
+   */
+  static @Nullable BufferedImage toPaletteImage(@NotNull BufferedImage source) {
+    if (source.getColorModel() instanceof IndexColorModel) {
+      return null;
+    }
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+
+    Map<Integer, Integer> palette = new HashMap<>();
+    for (int pixel : pixels) {
+      if (!palette.containsKey(pixel)) {
+        if (palette.size() == MAX_PALETTE_SIZE) {
+          return null;
+        }
+        palette.put(pixel, palette.size());
+      }
+    }
+
+    int size = palette.size();
+    byte[] r = new byte[size];
+    byte[] g = new byte[size];
+    byte[] b = new byte[size];
+    byte[] a = new byte[size];
+    for (Map.Entry<Integer, Integer> entry : palette.entrySet()) {
+      int argb = entry.getKey();
+      int index = entry.getValue();
+      a[index] = (byte)(argb >>> 24);
+      r[index] = (byte)(argb >>> 16);
+      g[index] = (byte)(argb >>> 8);
+      b[index] = (byte)argb;
+    }
+
+    int bits = size <= 2 ? 1 : size <= 4 ? 2 : size <= 16 ? 4 : 8;
+    IndexColorModel colorModel = new IndexColorModel(bits, size, r, g, b, a);
+    BufferedImage image = new BufferedImage(width, height,
+        bits == 8 ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_BYTE_BINARY, colorModel);
+    WritableRaster raster = image.getRaster();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        raster.setSample(x, y, 0, palette.get(pixels[y * width + x]));
+      }
+    }
+    return image;
+  }
+
+}
@@ -19,22 +19,34 @@
  */
 package io.wcm.handler.media.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Set;
 
 import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.servlets.HttpConstants;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.day.cq.commons.jcr.JcrConstants;
 import com.day.image.Layer;
 
 import io.wcm.handler.media.CropDimension;
+import io.wcm.handler.media.Dimension;
+import io.wcm.handler.media.format.MediaFormat;
+import io.wcm.handler.media.format.MediaFormatHandler;
+import io.wcm.handler.media.format.Ratio;
 import io.wcm.handler.media.spi.MediaHandlerConfig;
 import io.wcm.handler.mediasource.dam.impl.TransformedRenditionHandler;
 import io.wcm.sling.commons.adapter.AdaptTo;
@@ -52,55 +64,197 @@ import io.wcm.wcm.commons.contenttype.FileExtension;
     "sling.servlet.resourceTypes=" + JcrConstants.NT_RESOURCE,
     "sling.servlet.methods=" + HttpConstants.METHOD_GET
 })
+@Designate(ocd = ImageFileServlet.Config.class)
 public final class ImageFileServlet extends AbstractMediaFileServlet {
   private static final long serialVersionUID = 1L;
 
+  @ObjectClassDefinition(name = "wcm.io Media Handler Image File Servlet",
+      description = "Renders resized, cropped and rotated images.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Max. pixels per request",
+        description = "Max. number of pixels of the source image decoded for a single request. "
+            + "Each pixel requires about 4 bytes of heap memory. 0 = unlimited.")
+    long maxPixelsPerRequest() default DEFAULT_MAX_PIXELS_PER_REQUEST;
+
+    @AttributeDefinition(name = "Max. pixels in flight",
+        description = "Max. number of source image pixels decoded concurrently by all requests. "
+            + "Requests exceeding this budget are rejected with HTTP 503. 0 = unlimited.")
+    long maxPixelsInFlight() default DEFAULT_MAX_PIXELS_IN_FLIGHT;
+
+    @AttributeDefinition(name = "Validate media formats",
+        description = "Reject requested dimensions that do not match any image media format defined by the application. "
+            + "All image media formats are checked, not only those valid for the asset. "
+            + "Applies to resized images and images streamed unchanged.")
+    boolean validateMediaFormats() default false;
+
+  }
+
+  static final long DEFAULT_MAX_PIXELS_PER_REQUEST = 50000000L;
+  static final long DEFAULT_MAX_PIXELS_IN_FLIGHT = 250000000L;
+
   /**
    * Selector
    */
   public static final String SELECTOR = "image_file";
 
+  /**
+   * Vary header
+   */
+  static final String HEADER_VARY = "Vary";
+
+  private static final String HEADER_ACCEPT = "Accept";
+
+  private static final String RA_NEGOTIATED_CONTENT_TYPE = ImageFileServlet.class.getName() + ".negotiatedContentType";
+
+  private static final String RA_SOURCE_DIMENSION = ImageFileServlet.class.getName() + ".sourceDimension";
+
+  private static final Logger log = LoggerFactory.getLogger(ImageFileServlet.class);
+
+  private transient ImagePixelBudget pixelBudget = new ImagePixelBudget(
+      DEFAULT_MAX_PIXELS_PER_REQUEST, DEFAULT_MAX_PIXELS_IN_FLIGHT);
+  private transient boolean validateMediaFormats;
+
+  @Activate
+  private void activate(Config config) {
+    pixelBudget = new ImagePixelBudget(config.maxPixelsPerRequest(), config.maxPixelsInFlight());
+    validateMediaFormats = config.validateMediaFormats();
+  }
+
+  @Override
+  protected String getServletSelector() {
+    return SELECTOR;
+  }
+
+  @Override
+  protected String getETagAdditionalData(Resource resource, SlingHttpServletRequest request) {
+    // output format, quality and encoder settings are not reflected by the request path
+    MediaHandlerConfig config = AdaptTo.notNull(request, MediaHandlerConfig.class);
+    String contentType = getContentType(resource, request);
+    String additionalData = contentType + ";" + config.getDefaultImageQuality(contentType)
+        + ";" + config.isJpegProgressive() + ";" + config.isJpegChromaSubsampling()
+        + ";" + config.getPngCompressionLevel() + ";" + config.isPngPaletteReduction();
+    if (config.isImageOutputFormatNegotiation()) {
+      String alternativeContentType = getAlternativeContentType(contentType, request);
+      additionalData += ";" + alternativeContentType;
+      if (alternativeContentType != null) {
+        additionalData += ";" + config.getDefaultImageQuality(alternativeContentType);
+      }
+    }
+    return additionalData;
+  }
+
+  @Override
+  protected boolean isNotModified(Resource resource, SlingHttpServletRequest request,
+      SlingHttpServletResponse response) throws IOException {
+    MediaHandlerConfig config = AdaptTo.notNull(request, MediaHandlerConfig.class);
+    if (config.isImageOutputFormatNegotiation()) {
+      response.setHeader(HEADER_VARY, HEADER_ACCEPT);
+    }
+    return super.isNotModified(resource, request, response);
+  }
+
+  @Override
+  protected boolean isStreamBinaryData(Resource resource, SlingHttpServletRequest request) {
+    // stream original binary if output is identical to source image - only file name or extension may differ
+    TransformParams params = TransformParams.fromRequest(request);
+    if (params == null || params.rotation != 0) {
+      return false;
+    }
+    // let getBinaryData reject dimensions not matching any media format
+    if (validateMediaFormats && !matchesMediaFormat(params.width, params.height, request)) {
+      return false;
+    }
+    if (!isSameImageFormat(JcrBinary.getMimeType(resource), getContentType(resource, request))) {
+      return false;
+    }
+    Dimension sourceDimension = getSourceDimension(resource, request);
+    if (sourceDimension == null) {
+      return false;
+    }
+    long sourceWidth = sourceDimension.getWidth();
+    long sourceHeight = sourceDimension.getHeight();
+    if (params.cropDimension != null
+        && !(params.cropDimension.getLeft() == 0 && params.cropDimension.getTop() == 0
+        && params.cropDimension.getWidth() == sourceWidth && params.cropDimension.getHeight() == sourceHeight)) {
+      return false;
+    }
+    // image is resized only if requested dimension is not larger than source dimension
+    boolean resize = params.width <= sourceWidth && params.height <= sourceHeight;
+    return !resize || (params.width == sourceWidth && params.height == sourceHeight);
+  }
+
+  private static boolean isSameImageFormat(String sourceContentType, String outputContentType) {
+    if (ImageFileEncoder.isJpeg(outputContentType)) {
+      return StringUtils.equalsIgnoreCase(sourceContentType, ContentType.JPEG)
+          || StringUtils.equalsIgnoreCase(sourceContentType, "image/jpg")
+          || StringUtils.equalsIgnoreCase(sourceContentType, "image/pjpeg");
+    }
+    return StringUtils.equalsIgnoreCase(sourceContentType, outputContentType);
+  }
+
+  /**
+   * Get source image dimension read from image header. The result is cached in a request attribute.
+   */
+  private static Dimension getSourceDimension(Resource resource, SlingHttpServletRequest request) {
+    Dimension dimension = (Dimension)request.getAttribute(RA_SOURCE_DIMENSION);
+    if (dimension == null) {
+      dimension = ImagePixelBudget.getImageDimension(resource);
+      if (dimension != null) {
+        request.setAttribute(RA_SOURCE_DIMENSION, dimension);
+      }
+    }
+    return dimension;
+  }
+
   @Override
   protected byte[] getBinaryData(Resource resource, SlingHttpServletRequest request) throws IOException {
     // get media app config
     MediaHandlerConfig config = AdaptTo.notNull(request, MediaHandlerConfig.class);
 
-    // check for image scaling parameters
-    int width = 0;
-    int height = 0;
-    String[] selectors = request.getRequestPathInfo().getSelectors();
-    if (selectors.length >= 3) {
-      width = NumberUtils.toInt(selectors[1]);
-      height = NumberUtils.toInt(selectors[2]);
-    }
-    if (width <= 0 || height <= 0) {
+    // check for image scaling, cropping and rotation parameters
+    TransformParams params = TransformParams.fromRequest(request);
+    if (params == null) {
       return null;
     }
+    int width = params.width;
+    int height = params.height;
+    CropDimension cropDimension = params.cropDimension;
+    int rotation = params.rotation;
 
-    // check for cropping parameter
-    CropDimension cropDimension = null;
-    if (selectors.length >= 4) {
-      String cropString = selectors[3];
-      if (!StringUtils.equals(cropString, "-")) {
-        try {
-          cropDimension = CropDimension.fromCropString(cropString);
-        }
-        catch (IllegalArgumentException ex) {
-          // ignore
-        }
-      }
+    // reject dimensions not matching any media format
+    if (validateMediaFormats && !matchesMediaFormat(width, height, request)) {
+      log.debug("Reject {}x{} for {}: No matching media format.", width, height, resource.getPath());
+      return null;
     }
 
-    // check for rotation parameter
-    int rotation = 0;
-    if (selectors.length >= 5) {
-      String rotationString = selectors[4];
-      rotation = NumberUtils.toInt(rotationString);
-      if (!TransformedRenditionHandler.isValidRotation(rotation)) {
-        rotation = 0;
-      }
+    // estimate memory required for decoding the source image before decoding it
+    Dimension sourceDimension = getSourceDimension(resource, request);
+    long pixels = pixelBudget.getPixels(sourceDimension);
+    if (sourceDimension == null) {
+      log.debug("Unable to read source image dimension of {}, charge whole budget for images decoded concurrently.",
+          resource.getPath());
+    }
+    else if (!pixelBudget.isWithinRequestBudget(pixels)) {
+      log.warn("Reject {}: Decoding {} pixels (~{} bytes) exceeds budget per request.",
+          resource.getPath(), pixels, pixels * ImagePixelBudget.BYTES_PER_PIXEL);
+      return null;
+    }
+    if (!pixelBudget.acquire(pixels)) {
+      log.warn("Reject {}: Decoding {} pixels exceeds budget for images decoded concurrently ({} pixels in flight).",
+          resource.getPath(), pixels, pixelBudget.getPixelsInFlight());
+      throw new HttpStatusException(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+    try {
+      return renderImage(resource, request, config, width, height, cropDimension, rotation);
     }
+    finally {
+      pixelBudget.release(pixels);
+    }
+  }
 
+  private byte[] renderImage(Resource resource, SlingHttpServletRequest request, MediaHandlerConfig config,
+      int width, int height, CropDimension cropDimension, int rotation) throws IOException {
     Layer layer = resource.adaptTo(Layer.class);
     if (layer == null) {
       return null;
@@ -121,17 +275,122 @@ public final class ImageFileServlet extends AbstractMediaFileServlet {
       layer.resize(width, height);
     }
 
-    // stream to byte array
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    // encode to requested output format
     String contentType = getContentType(resource, request);
-    layer.write(contentType, config.getDefaultImageQuality(contentType), bos);
-    bos.flush();
-    return bos.toByteArray();
+    byte[] binaryData = ImageFileEncoder.encode(layer, contentType, config);
+
+    // if enabled: check if alternative output format accepted by client results in smaller binary
+    if (config.isImageOutputFormatNegotiation()) {
+      String alternativeContentType = getAlternativeContentType(contentType, request);
+      if (alternativeContentType != null && ImageFileEncoder.canEncode(layer, alternativeContentType)) {
+        byte[] alternativeBinaryData = ImageFileEncoder.encode(layer, alternativeContentType, config);
+        if (alternativeBinaryData.length < binaryData.length) {
+          request.setAttribute(RA_NEGOTIATED_CONTENT_TYPE, alternativeContentType);
+          binaryData = alternativeBinaryData;
+        }
+      }
+    }
+
+    return binaryData;
+  }
+
+  /**
+   * Checks if the requested dimension matches at least one image media format.
+   * If no media formats are defined all dimensions are accepted.
+   * @param width Width
+   * @param height Height
+   * @param request Request
+   * @return true if dimension matches
+   */
+  private static boolean matchesMediaFormat(long width, long height, SlingHttpServletRequest request) {
+    MediaFormatHandler mediaFormatHandler = request.adaptTo(MediaFormatHandler.class);
+    if (mediaFormatHandler == null) {
+      return true;
+    }
+    Set<MediaFormat> mediaFormats = mediaFormatHandler.getMediaFormats();
+    if (mediaFormats.isEmpty()) {
+      return true;
+    }
+    for (MediaFormat mediaFormat : mediaFormats) {
+      if (mediaFormat.isImage() && matchesMediaFormat(width, height, mediaFormat)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean matchesMediaFormat(long width, long height, MediaFormat mediaFormat) {
+    if (!isInRange(width, mediaFormat.getEffectiveMinWidth(), mediaFormat.getEffectiveMaxWidth())
+        || !isInRange(height, mediaFormat.getEffectiveMinHeight(), mediaFormat.getEffectiveMaxHeight())) {
+      return false;
+    }
+    if (mediaFormat.hasRatio()) {
+      return Ratio.matches((double)width / (double)height, mediaFormat.getRatio());
+    }
+    return true;
+  }
+
+  private static boolean isInRange(long value, long min, long max) {
+    return (min <= 0 || value >= min) && (max <= 0 || value <= max);
+  }
+
+  /**
+   * Get alternative output format for negotiation, if accepted by the client.
+   * @param contentType Requested output content type
+   * @param request Request
+   * @return Alternative content type or null
+   */
+  private static String getAlternativeContentType(String contentType, SlingHttpServletRequest request) {
+    String alternativeContentType = ImageFileEncoder.isPng(contentType) ? ContentType.JPEG : ContentType.PNG;
+    if (isAccepted(alternativeContentType, request.getHeader(HEADER_ACCEPT))) {
+      return alternativeContentType;
+    }
+    return null;
+  }
+
+  /**
+   * Checks if the given content type is accepted explicitly or via "image/*" with a quality greater than 0.
+   * The wildcard "*&#47;*" is not taken into account.
+   * @param contentType Content type
+   * @param acceptHeader Accept header value
+   * @return true if accepted
+   */
+  static boolean isAccepted(String contentType, String acceptHeader) {
+    if (StringUtils.isBlank(acceptHeader)) {
+      return false;
+    }
+    for (String mediaRange : StringUtils.split(acceptHeader, ',')) {
+      String[] parts = StringUtils.split(mediaRange, ';');
+      if (parts.length == 0) {
+        continue;
+      }
+      String type = StringUtils.trim(parts[0]);
+      if (!StringUtils.equalsIgnoreCase(type, contentType) && !StringUtils.equals(type, "image/*")) {
+        continue;
+      }
+      double q = 1d;
+      for (int i = 1; i < parts.length; i++) {
+        String param = StringUtils.trim(parts[i]);
+        if (StringUtils.startsWith(param, "q=")) {
+          q = NumberUtils.toDouble(StringUtils.substringAfter(param, "q="), 0d);
+        }
+      }
+      if (q > 0d) {
+        return true;
+      }
+    }
+    return false;
   }
 
   @Override
   protected String getContentType(Resource resource, SlingHttpServletRequest request) {
 
+    // output format negotiated while rendering the image
+    String negotiatedContentType = (String)request.getAttribute(RA_NEGOTIATED_CONTENT_TYPE);
+    if (negotiatedContentType != null) {
+      return negotiatedContentType;
+    }
+
     // get filename from suffix to get extension
     String fileName = request.getRequestPathInfo().getSuffix();
     if (StringUtils.isNotEmpty(fileName)) {
@@ -146,6 +405,70 @@ public final class ImageFileServlet extends AbstractMediaFileServlet {
     return ContentType.JPEG;
   }
 
+  /**
+   * Image transformation parameters from request selectors.
+   */
+  private static final class TransformParams {
+
+    private final int width;
+    private final int height;
+    private final CropDimension cropDimension;
+    private final int rotation;
+
+    private TransformParams(int width, int height, CropDimension cropDimension, int rotation) {
+      this.width = width;
+      this.height = height;
+      this.cropDimension = cropDimension;
+      this.rotation = rotation;
+    }
+
+    /**
+     * @param request Request
+     * @return Parameters or null if no valid width/height is given
+     */
+    static TransformParams fromRequest(SlingHttpServletRequest request) {
+
+      // check for image scaling parameters
+      int width = 0;
+      int height = 0;
+      String[] selectors = request.getRequestPathInfo().getSelectors();
+      if (selectors.length >= 3) {
+        width = NumberUtils.toInt(selectors[1]);
+        height = NumberUtils.toInt(selectors[2]);
+      }
+      if (width <= 0 || height <= 0) {
+        return null;
+      }
+
+      // check for cropping parameter
+      CropDimension cropDimension = null;
+      if (selectors.length >= 4) {
+        String cropString = selectors[3];
+        if (!StringUtils.equals(cropString, "-")) {
+          try {
+            cropDimension = CropDimension.fromCropString(cropString);
+          }
+          catch (IllegalArgumentException ex) {
+            // ignore
+          }
+        }
+      }
+
+      // check for rotation parameter
+      int rotation = 0;
+      if (selectors.length >= 5) {
+        String rotationString = selectors[4];
+        rotation = NumberUtils.toInt(rotationString);
+        if (!TransformedRenditionHandler.isValidRotation(rotation)) {
+          rotation = 0;
+        }
+      }
+
+      return new TransformParams(width, height, cropDimension, rotation);
+    }
+
+  }
+
   /**
    * Get image filename to be used for the URL with file extension matching the image format which is produced by this
    * servlet.
@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import static com.day.cq.commons.jcr.JcrConstants.JCR_CONTENT;
+import static com.day.cq.dam.api.DamConstants.ORIGINAL_FILE;
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGELENGTH;
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGEWIDTH;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.sling.api.resource.Resource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.commons.util.DamUtil;
+
+import io.wcm.handler.media.Dimension;
+
+/**
+ * Admission control for decoding images based on the number of pixels of the source image.
+ * Each decoded pixel requires about {@link #BYTES_PER_PIXEL} bytes of heap memory.
+ * Limits the pixels decoded for a single request and the pixels decoded concurrently by all requests.
+ */
+final class ImagePixelBudget {
+
+  /**
+   * Bytes per pixel of a decoded image (ARGB)
+   */
+  static final int BYTES_PER_PIXEL = 4;
+
+  private final long maxPixelsPerRequest;
+  private final long maxPixelsInFlight;
+  private final AtomicLong pixelsInFlight = new AtomicLong();
+
+  private static final Logger log = LoggerFactory.getLogger(ImagePixelBudget.class);
+
+  /**
+   * @param maxPixelsPerRequest Max. source pixels per request. 0 = unlimited.
+   * @param maxPixelsInFlight Max. source pixels decoded concurrently. 0 = unlimited.
+   */
+  ImagePixelBudget(long maxPixelsPerRequest, long maxPixelsInFlight) {
+    this.maxPixelsPerRequest = maxPixelsPerRequest;
+    this.maxPixelsInFlight = maxPixelsInFlight;
+  }
+
+  /**
+   * @param pixels Number of source pixels
+   * @return true if the number of pixels does not exceed the per-request budget
+   */
+  boolean isWithinRequestBudget(long pixels) {
+    return maxPixelsPerRequest <= 0 || pixels <= maxPixelsPerRequest;
+  }
+
+  /**
+   * Gets the number of source pixels to charge for decoding an image.
+   * If the dimension is unknown the image may be of any size: The whole in-flight budget is charged, so
+   * the image is only decoded if no other image is decoded concurrently.
+   * @param sourceDimension Source image dimension or null if unknown
+   * @return Number of source pixels
+   */
+  long getPixels(@Nullable Dimension sourceDimension) {
+    if (sourceDimension != null) {
+      return sourceDimension.getWidth() * sourceDimension.getHeight();
+    }
+    return maxPixelsInFlight;
+  }
+
+  /**
+   * Reserves the given number of pixels from the global in-flight budget.
+   * If no other image is currently decoded the reservation always succeeds.
+   * Each successful call has to be followed by a call to {@link #release(long)}.
+   * @param pixels Number of source pixels
+   * @return true if the reservation succeeded
+   */
+  boolean acquire(long pixels) {
+    if (maxPixelsInFlight <= 0) {
+      pixelsInFlight.addAndGet(pixels);
+      return true;
+    }
+    while (true) {
+      long current = pixelsInFlight.get();
+      if (current > 0 && current + pixels > maxPixelsInFlight) {
+        return false;
+      }
+      if (pixelsInFlight.compareAndSet(current, current + pixels)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases a reservation made with {@link #acquire(long)}.
+   * @param pixels Number of source pixels
+   */
+  void release(long pixels) {
+    pixelsInFlight.addAndGet(-pixels);
+  }
+
+  /**
+   * @return Number of source pixels currently in flight
+   */
+  long getPixelsInFlight() {
+    return pixelsInFlight.get();
+  }
+
+  /**
+   * Reads the image dimension from the header of the binary without decoding the image data.
+   * If the image format is not supported by ImageIO the dimension is read from the asset metadata
+   * for original renditions of DAM assets.
+   * @param resource Resource pointing to nt:file or nt:resource node
+   * @return Dimension or null if it could not be detected
+   */
+  static @Nullable Dimension getImageDimension(@NotNull Resource resource) {
+    Dimension dimension = readImageHeader(resource);
+    if (dimension == null) {
+      dimension = getOriginalRenditionDimension(resource);
+    }
+    return dimension;
+  }
+
+  private static @Nullable Dimension readImageHeader(@NotNull Resource resource) {
+    InputStream is = resource.adaptTo(InputStream.class);
+    if (is == null) {
+      return null;
+    }
+    try (InputStream binary = is;
+        ImageInputStream iis = ImageIO.createImageInputStream(binary)) {
+      if (iis == null) {
+        return null;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(iis, true, true);
+        return new Dimension(reader.getWidth(0), reader.getHeight(0));
+      }
+      finally {
+        reader.dispose();
+      }
+    }
+    catch (IOException ex) {
+      log.debug("Unable to read image dimension from {}", resource.getPath(), ex);
+      return null;
+    }
+  }
+
+  private static @Nullable Dimension getOriginalRenditionDimension(@NotNull Resource resource) {
+    Resource fileResource = resource;
+    if (StringUtils.equals(resource.getName(), JCR_CONTENT)) {
+      fileResource = resource.getParent();
+    }
+    if (fileResource == null || !StringUtils.equals(fileResource.getName(), ORIGINAL_FILE)) {
+      return null;
+    }
+    Asset asset = DamUtil.resolveToAsset(fileResource);
+    if (asset == null) {
+      return null;
+    }
+    long width = NumberUtils.toLong(asset.getMetadataValue(TIFF_IMAGEWIDTH));
+    long height = NumberUtils.toLong(asset.getMetadataValue(TIFF_IMAGELENGTH));
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    return new Dimension(width, height);
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import io.wcm.wcm.commons.caching.ModificationDate;
+
+/**
+ * Helper methods for ETag-based conditional GET handling and Cache-Control headers in media file servlets.
+ */
+final class MediaFileCacheHeader {
+
+  static final String HEADER_ETAG = "ETag";
+  static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  static final String HEADER_CACHE_CONTROL = "Cache-Control";
+
+  private static final char SEPARATOR = '\n';
+
+  private MediaFileCacheHeader() {
+    // static methods only
+  }
+
+  /**
+   * Builds a strong ETag value derived from resource path, modification date, selectors and suffix
+   * of the current request and optional additional data that influences the generated response.
+   * @param resource Resource containing the binary data
+   * @param request Request
+   * @param additionalData Additional data that influences the response (e.g. image quality), may be null
+   * @return Quoted ETag value
+   */
+  static @NotNull String buildETag(@NotNull Resource resource, @NotNull SlingHttpServletRequest request,
+      @Nullable String additionalData) {
+    return buildETag(resource.getPath(), ModificationDate.get(resource), request, additionalData);
+  }
+
+  /**
+   * Builds a strong ETag value derived from resource path, modification date, selectors and suffix
+   * of the current request and optional additional data that influences the generated response.
+   * @param path Resource path
+   * @param lastModified Modification date or null
+   * @param request Request
+   * @param additionalData Additional data that influences the response (e.g. image quality), may be null
+   * @return Quoted ETag value
+   */
+  static @NotNull String buildETag(@Nullable String path, @Nullable Date lastModified,
+      @NotNull SlingHttpServletRequest request, @Nullable String additionalData) {
+    RequestPathInfo pathInfo = request.getRequestPathInfo();
+    Hasher hasher = Hashing.sha256().newHasher()
+        .putString(StringUtils.defaultString(path), StandardCharsets.UTF_8).putChar(SEPARATOR)
+        .putLong(lastModified != null ? lastModified.getTime() : 0L).putChar(SEPARATOR)
+        .putString(StringUtils.defaultString(pathInfo.getSelectorString()), StandardCharsets.UTF_8).putChar(SEPARATOR)
+        .putString(StringUtils.defaultString(pathInfo.getExtension()), StandardCharsets.UTF_8).putChar(SEPARATOR)
+        .putString(StringUtils.defaultString(pathInfo.getSuffix()), StandardCharsets.UTF_8).putChar(SEPARATOR)
+        .putString(StringUtils.defaultString(additionalData), StandardCharsets.UTF_8);
+    return "\"" + hasher.hash().toString() + "\"";
+  }
+
+  /**
+   * Checks if the If-None-Match request header matches the given ETag.
+   * Weak comparison is applied as defined for If-None-Match in RFC 7232.
+   * @param request Request
+   * @param etag Quoted ETag value
+   * @return true if the header is present and one of its entity tags matches
+   */
+  static boolean matchesIfNoneMatch(@NotNull SlingHttpServletRequest request, @NotNull String etag) {
+    String ifNoneMatch = request.getHeader(HEADER_IF_NONE_MATCH);
+    if (StringUtils.isBlank(ifNoneMatch)) {
+      return false;
+    }
+    for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+      String value = StringUtils.trim(candidate);
+      if (StringUtils.equals(value, "*")) {
+        return true;
+      }
+      value = StringUtils.removeStart(value, "W/");
+      if (StringUtils.equals(value, etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param request Request
+   * @return true if the request contains a If-None-Match header. In this case the If-Modified-Since header
+   *         has to be ignored as defined in RFC 7232.
+   */
+  static boolean hasIfNoneMatch(@NotNull SlingHttpServletRequest request) {
+    return request.getHeader(HEADER_IF_NONE_MATCH) != null;
+  }
+
+  /**
+   * Sets ETag header and sends status 304 if the If-None-Match request header matches the ETag.
+   * @param etag Quoted ETag value
+   * @param request Request
+   * @param response Response
+   * @return true if the resource is not modified and a 304 status was sent
+   */
+  static boolean isNotModified(@NotNull String etag, @NotNull SlingHttpServletRequest request,
+      @NotNull SlingHttpServletResponse response) {
+    response.setHeader(HEADER_ETAG, etag);
+    if (matchesIfNoneMatch(request, etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Sets the Cache-Control header.
+   * @param response Response
+   * @param maxAge Max age in seconds. If 0 or negative, no header is set.
+   * @param immutable Whether to add the "immutable" directive
+   */
+  static void setCacheControl(@NotNull SlingHttpServletResponse response, long maxAge, boolean immutable) {
+    if (maxAge <= 0) {
+      return;
+    }
+    StringBuilder value = new StringBuilder("max-age=").append(maxAge);
+    if (immutable) {
+      value.append(", immutable");
+    }
+    response.setHeader(HEADER_CACHE_CONTROL, value.toString());
+  }
+
+}
@@ -50,4 +50,9 @@ public final class MediaFileServlet extends AbstractMediaFileServlet {
    */
   public static final String EXTENSION = "file";
 
+  @Override
+  protected String getServletSelector() {
+    return SELECTOR;
+  }
+
 }
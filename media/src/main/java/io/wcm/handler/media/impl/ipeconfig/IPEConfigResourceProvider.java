@@ -23,28 +23,44 @@ import static io.wcm.handler.media.impl.ipeconfig.PathParser.NN_ASPECT_RATIOS;
 import static io.wcm.handler.media.impl.ipeconfig.PathParser.NN_CONFIG;
 import static io.wcm.handler.media.impl.ipeconfig.PathParser.NN_MEDIA_FORMAT;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
 import org.apache.sling.spi.resource.provider.ResourceProvider;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.day.cq.wcm.api.components.ComponentManager;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 
 import io.wcm.handler.media.format.MediaFormat;
 import io.wcm.handler.media.format.MediaFormatHandler;
+import io.wcm.handler.media.spi.MediaFormatProvider;
 import io.wcm.sling.commons.adapter.AdaptTo;
 
 /**
@@ -55,17 +71,43 @@ import io.wcm.sling.commons.adapter.AdaptTo;
  * <code>/wcmio:mediaHandler/ipeConfig/{componentContentPath}/wcmio:mediaFormat/{mf1}/{mf2}/.../wcmio:config/{relativeConfigPath}</code>
  * </p>
  */
-@Component(service = ResourceProvider.class, property = {
+@Component(service = { ResourceProvider.class, ResourceChangeListener.class }, property = {
     ResourceProvider.PROPERTY_NAME + "=wcmioHandlerIPEConfig",
-    ResourceProvider.PROPERTY_ROOT + "=" + IPEConfigResourceProvider.IPECONFIG_OVERLAY_ROOTPATH
+    ResourceProvider.PROPERTY_ROOT + "=" + IPEConfigResourceProvider.IPECONFIG_OVERLAY_ROOTPATH,
+    ResourceChangeListener.PATHS + "=/apps",
+    ResourceChangeListener.PATHS + "=/libs"
 })
-public class IPEConfigResourceProvider extends ResourceProvider {
+public class IPEConfigResourceProvider extends ResourceProvider implements ResourceChangeListener {
 
   /**
    * Root path for IPE config overlay resources.
    */
   public static final String IPECONFIG_OVERLAY_ROOTPATH = "/wcmio:mediaHandler/ipeConfig";
 
+  // cache resolved IPE config path and media formats per component content path, resource type and media format names.
+  // invalidated on changes in component definitions and media format provider registrations.
+  private final Cache<String, IPEConfig> cache = CacheBuilder.newBuilder()
+      .maximumSize(1000)
+      .build();
+
+  private static final Logger log = LoggerFactory.getLogger(IPEConfigResourceProvider.class);
+
+  @Reference(service = MediaFormatProvider.class, cardinality = ReferenceCardinality.MULTIPLE,
+      policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY)
+  void bindMediaFormatProvider(ServiceReference<MediaFormatProvider> reference) {
+    cache.invalidateAll();
+  }
+
+  void unbindMediaFormatProvider(ServiceReference<MediaFormatProvider> reference) {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void onChange(@NotNull List<ResourceChange> changes) {
+    // component definitions changed
+    cache.invalidateAll();
+  }
+
   @Override
   public @Nullable Resource getResource(@NotNull ResolveContext resolveContext, @NotNull String path,
       @NotNull ResourceContext resourceContext, @Nullable Resource parent) {
@@ -84,12 +126,12 @@ public class IPEConfigResourceProvider extends ResourceProvider {
       // simulate 'aspectRatios/xxx' node
       String mediaFormatName = parser.getAspectRatioItemName();
       if (parser.getMediaFormatNames().contains(mediaFormatName)) {
-        return buildAspectRatioItemResource(resolver, path, mediaFormatName, parser);
+        return buildAspectRatioItemResource(resolver, path, mediaFormatName, getIPEConfig(resolver, parser));
       }
     }
     else {
       // return wrapped overlaid resource
-      String overlayResourcePath = getIpeConfigPath(resolver, parser);
+      String overlayResourcePath = getIpeConfigPath(getIPEConfig(resolver, parser), parser);
       if (StringUtils.isNotEmpty(overlayResourcePath)) {
         Resource overlayResource = resolver.getResource(overlayResourcePath);
         if (overlayResource != null) {
@@ -118,8 +160,9 @@ public class IPEConfigResourceProvider extends ResourceProvider {
     else if (parser.isAspectRatiosNode()) {
       // add simulated 'aspectRatios/xxx' nodes
       childMap.clear();
+      IPEConfig ipeConfig = getIPEConfig(resolver, parser);
       for (String mediaFormatName : parser.getMediaFormatNames()) {
-        Resource item = buildAspectRatioItemResource(resolver, path + "/" + mediaFormatName, mediaFormatName, parser);
+        Resource item = buildAspectRatioItemResource(resolver, path + "/" + mediaFormatName, mediaFormatName, ipeConfig);
         if (item != null) {
           childMap.put(mediaFormatName, item);
         }
@@ -168,16 +211,14 @@ public class IPEConfigResourceProvider extends ResourceProvider {
    * @param resolver Resource resolver
    * @param path Path
    * @param mediaFormatName Media format name
-   * @param parser Path parser
+   * @param ipeConfig IPE config
    * @return Resource or null if media format not found or has no valid ratio
    */
   private Resource buildAspectRatioItemResource(ResourceResolver resolver, String path, String mediaFormatName,
-      PathParser parser) {
-    Resource componentContent = resolver.getResource(parser.getComponentContentPath());
-    if (componentContent != null) {
-      MediaFormatHandler mediaFormatHandler = AdaptTo.notNull(componentContent, MediaFormatHandler.class);
-      MediaFormat mediaFormat = mediaFormatHandler.getMediaFormat(mediaFormatName);
-      if (mediaFormat != null && mediaFormat.getRatio() > 0) {
+      IPEConfig ipeConfig) {
+    if (ipeConfig != null) {
+      MediaFormat mediaFormat = ipeConfig.getMediaFormat(mediaFormatName);
+      if (mediaFormat != null) {
         return new AspectRatioResource(resolver, mediaFormat, path);
       }
     }
@@ -187,25 +228,61 @@ public class IPEConfigResourceProvider extends ResourceProvider {
   /**
    * Get IPE config path from component associated with given resource and append the relative
    * config path from current resource request.
-   * @param resolver Resource resolver
+   * @param ipeConfig IPE config
    * @param parser Path parser
    * @return Path or null
    */
-  private String getIpeConfigPath(ResourceResolver resolver, PathParser parser) {
+  private String getIpeConfigPath(IPEConfig ipeConfig, PathParser parser) {
+    if (ipeConfig != null && StringUtils.isNotEmpty(ipeConfig.getConfigPath())) {
+      return ipeConfig.getConfigPath() + StringUtils.defaultString(parser.getRelativeConfigPath());
+    }
+    return null;
+  }
+
+  /**
+   * Get IPE config for component content resource and media format names from cache, or resolve it.
+   * @param resolver Resource resolver
+   * @param parser Path parser
+   * @return IPE config or null if component content resource does not exist
+   */
+  private IPEConfig getIPEConfig(ResourceResolver resolver, PathParser parser) {
     Resource componentContent = resolver.getResource(parser.getComponentContentPath());
-    if (componentContent != null) {
-      ComponentManager componentManager = AdaptTo.notNull(resolver, ComponentManager.class);
-      com.day.cq.wcm.api.components.Component component = componentManager.getComponentOfResource(componentContent);
-      if (component != null
-          && component.getEditConfig() != null
-          && component.getEditConfig().getInplaceEditingConfig() != null) {
-        String ipeConfigPath = component.getEditConfig().getInplaceEditingConfig().getConfigPath();
-        if (StringUtils.isNotEmpty(ipeConfigPath)) {
-          return ipeConfigPath + StringUtils.defaultString(parser.getRelativeConfigPath());
-        }
+    if (componentContent == null) {
+      return null;
+    }
+    String key = componentContent.getPath() + "|" + componentContent.getResourceType()
+        + "|" + StringUtils.join(parser.getMediaFormatNames(), "/");
+    try {
+      return cache.get(key, () -> resolveIPEConfig(componentContent, parser.getMediaFormatNames()));
+    }
+    catch (ExecutionException ex) {
+      log.warn("Unexpected exception.", ex);
+      return resolveIPEConfig(componentContent, parser.getMediaFormatNames());
+    }
+  }
+
+  private static IPEConfig resolveIPEConfig(Resource componentContent, Set<String> mediaFormatNames) {
+    // get IPE config path from component
+    String configPath = null;
+    ComponentManager componentManager = AdaptTo.notNull(componentContent.getResourceResolver(), ComponentManager.class);
+    com.day.cq.wcm.api.components.Component component = componentManager.getComponentOfResource(componentContent);
+    if (component != null
+        && component.getEditConfig() != null
+        && component.getEditConfig().getInplaceEditingConfig() != null) {
+      configPath = component.getEditConfig().getInplaceEditingConfig().getConfigPath();
+    }
+
+    // get media formats with valid ratio
+    Map<String, MediaFormat> mediaFormats = new HashMap<>();
+    MediaFormatHandler mediaFormatHandler = AdaptTo.notNull(componentContent, MediaFormatHandler.class);
+    for (String mediaFormatName : mediaFormatNames) {
+      MediaFormat mediaFormat = mediaFormatHandler.getMediaFormat(mediaFormatName);
+      if (mediaFormat != null && mediaFormat.getRatio() > 0) {
+        mediaFormats.put(mediaFormatName, mediaFormat);
       }
     }
-    return null;
+
+    return new IPEConfig(configPath, mediaFormats);
   }
 
   /**
@@ -221,4 +298,27 @@ public class IPEConfigResourceProvider extends ResourceProvider {
         + "/" + NN_CONFIG;
   }
 
+  /**
+   * Resolved IPE config path and media formats for a component content resource.
+   */
+  private static final class IPEConfig {
+
+    private final String configPath;
+    private final Map<String, MediaFormat> mediaFormats;
+
+    IPEConfig(String configPath, Map<String, MediaFormat> mediaFormats) {
+      this.configPath = configPath;
+      this.mediaFormats = ImmutableMap.copyOf(mediaFormats);
+    }
+
+    String getConfigPath() {
+      return this.configPath;
+    }
+
+    MediaFormat getMediaFormat(String mediaFormatName) {
+      return this.mediaFormats.get(mediaFormatName);
+    }
+
+  }
+
 }
@@ -104,6 +104,71 @@ public abstract class MediaHandlerConfig implements ContextAwareService {
     return 1d;
   }
 
+  /**
+   * @return If true, JPEG images rendered by the image file servlet are encoded as progressive JPEG.
+   */
+  public boolean isJpegProgressive() {
+    return false;
+  }
+
+  /**
+   * @return If true, JPEG images rendered by the image file servlet use chroma subsampling 4:2:0 (default).
+   *         If false, no chroma subsampling (4:4:4) is applied which results in larger files with sharper colors.
+   */
+  public boolean isJpegChromaSubsampling() {
+    return true;
+  }
+
+  /**
+   * @return Deflate compression level 0-9 for PNG images rendered by the image file servlet.
+   *         A negative value uses the encoder default. Only supported when running on JDK 9 or higher.
+   */
+  public int getPngCompressionLevel() {
+    return -1;
+  }
+
+  /**
+   * @return If true, PNG images rendered by the image file servlet with not more than 256 distinct colors are
+   *         encoded losslessly as indexed color images.
+   */
+  public boolean isPngPaletteReduction() {
+    return false;
+  }
+
+  /**
+   * Enables output format negotiation for the image file servlet: If the client accepts JPEG and PNG
+   * (explicitly or via "image/*") the image is additionally encoded in the other format and the smaller
+   * result is returned. JPEG is only considered for images without alpha channel. A "Vary: Accept" header
+   * is added to the response.
+   * <p>
+   * Please note that this may deliver a JPEG image with lossy compression for PNG source images.
+   * </p>
+   * @return true if output format negotiation is enabled
+   */
+  public boolean isImageOutputFormatNegotiation() {
+    return false;
+  }
+
+  /**
+   * Get the max-age value of the Cache-Control header sent by the media file servlets.
+   * The servlets always send a strong ETag and support conditional GET requests with If-None-Match.
+   * @param servletSelector Identifies the servlet: "media_file", "image_file" or "dummy_image"
+   * @return Max age in seconds. If 0 or negative no Cache-Control header is sent (default).
+   */
+  public long getMediaFileCacheMaxAge(@NotNull String servletSelector) {
+    return 0L;
+  }
+
+  /**
+   * Whether to add the "immutable" directive to the Cache-Control header sent by the media file servlets.
+   * Only applied if {@link #getMediaFileCacheMaxAge(String)} returns a positive value.
+   * @param servletSelector Identifies the servlet: "media_file", "image_file" or "dummy_image"
+   * @return true if the responses should be marked as immutable
+   */
+  public boolean isMediaFileCacheImmutable(@NotNull String servletSelector) {
+    return false;
+  }
+
   /**
    * With this switch it's possible to switch all used property and node names from (legacy) wcm.io
    * Handler standard to Adobe Standard (as used e.g. in Adobe Core WCM Components) - e.g.
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+
+  @Test
+  void testStartEnd() {
+    ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+    assertEquals(100, range.getStart());
+    assertEquals(199, range.getEnd());
+    assertEquals(100, range.getLength());
+    assertEquals("bytes 100-199/1000", range.toContentRange(1000));
+  }
+
+  @Test
+  void testOpenEnd() {
+    ByteRange range = ByteRange.parse("bytes=900-", 1000);
+    assertEquals(900, range.getStart());
+    assertEquals(999, range.getEnd());
+  }
+
+  @Test
+  void testEndBeyondContentLength() {
+    ByteRange range = ByteRange.parse("bytes=900-5000", 1000);
+    assertEquals(999, range.getEnd());
+  }
+
+  @Test
+  void testSuffix() {
+    ByteRange range = ByteRange.parse("bytes=-100", 1000);
+    assertEquals(900, range.getStart());
+    assertEquals(999, range.getEnd());
+  }
+
+  @Test
+  void testUnsatisfiable() {
+    assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=1000-", 1000));
+    assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 1000));
+    assertEquals("bytes */1000", ByteRange.UNSATISFIABLE.toContentRange(1000));
+  }
+
+  @Test
+  void testIgnored() {
+    assertNull(ByteRange.parse(null, 1000));
+    assertNull(ByteRange.parse("items=0-10", 1000));
+    assertNull(ByteRange.parse("bytes=0-10,20-30", 1000));
+    assertNull(ByteRange.parse("bytes=20-10", 1000));
+    assertNull(ByteRange.parse("bytes=abc", 1000));
+  }
+
+}
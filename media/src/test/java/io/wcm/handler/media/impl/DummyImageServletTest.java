@@ -27,6 +27,7 @@ import java.io.InputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.sling.servlethelpers.MockSlingHttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -84,6 +85,22 @@ class DummyImageServletTest {
     assertResponseLayerDimension(100, 50);
   }
 
+  @Test
+  void testGet_IfNoneMatch() throws Exception {
+    context.requestPathInfo().setSuffix(new SuffixBuilder()
+    .put(DummyImageServlet.SUFFIX_WIDTH, 100)
+    .put(DummyImageServlet.SUFFIX_HEIGHT, 50)
+    .build());
+
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.request().addHeader(MediaFileCacheHeader.HEADER_IF_NONE_MATCH, etag);
+    underTest.service(context.request(), response);
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+  }
+
   private void assertResponseLayerDimension(int width, int height) throws IOException {
     try (InputStream is = new ByteArrayInputStream(context.response().getOutput())) {
       Layer layer = new Layer(is);
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import com.day.image.Layer;
+
+import io.wcm.handler.media.spi.MediaHandlerConfig;
+import io.wcm.wcm.commons.contenttype.ContentType;
+
+class ImageFileEncoderTest {
+
+  private final MediaHandlerConfig defaultConfig = new MediaHandlerConfig() {
+    // inherit default
+  };
+
+  private final MediaHandlerConfig tunedConfig = new MediaHandlerConfig() {
+    @Override
+    public boolean isJpegProgressive() {
+      return true;
+    }
+    @Override
+    public boolean isJpegChromaSubsampling() {
+      return false;
+    }
+    @Override
+    public int getPngCompressionLevel() {
+      return 9;
+    }
+    @Override
+    public boolean isPngPaletteReduction() {
+      return true;
+    }
+  };
+
+  @Test
+  void testEncodeJpeg_Default() throws IOException {
+    assertImageSize(ImageFileEncoder.encode(new Layer(100, 50, Color.RED), ContentType.JPEG, defaultConfig), 100, 50);
+  }
+
+  @Test
+  void testEncodeJpeg_Tuned() throws IOException {
+    assertImageSize(ImageFileEncoder.encode(new Layer(100, 50, Color.RED), ContentType.JPEG, tunedConfig), 100, 50);
+  }
+
+  @Test
+  void testEncodePng_Tuned() throws IOException {
+    byte[] data = ImageFileEncoder.encode(new Layer(100, 50, Color.RED), ContentType.PNG, tunedConfig);
+    BufferedImage image = assertImageSize(data, 100, 50);
+    assertTrue(image.getColorModel() instanceof IndexColorModel);
+    assertEquals(Color.RED.getRGB(), image.getRGB(10, 10));
+  }
+
+  @Test
+  void testToPaletteImage_TooManyColors() {
+    BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+    for (int i = 0; i < 400; i++) {
+      image.setRGB(i % 20, i / 20, i);
+    }
+    assertNull(ImageFileEncoder.toPaletteImage(image));
+  }
+
+  @Test
+  void testToPaletteImage() {
+    BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB(5, 5, 0x80ff0000);
+    BufferedImage result = ImageFileEncoder.toPaletteImage(image);
+    assertNotNull(result);
+    assertEquals(0x80ff0000, result.getRGB(5, 5));
+    assertEquals(image.getRGB(0, 0), result.getRGB(0, 0));
+  }
+
+  @Test
+  void testCanEncode() {
+    assertTrue(ImageFileEncoder.canEncode(new Layer(10, 10, Color.RED), ContentType.PNG));
+    assertFalse(ImageFileEncoder.canEncode(new Layer(10, 10, Color.RED), "image/gif"));
+  }
+
+  private static BufferedImage assertImageSize(byte[] data, int width, int height) throws IOException {
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+    assertEquals(width, image.getWidth());
+    assertEquals(height, image.getHeight());
+    return image;
+  }
+
+}
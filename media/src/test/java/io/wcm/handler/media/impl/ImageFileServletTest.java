@@ -19,20 +19,36 @@
  */
 package io.wcm.handler.media.impl;
 
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGELENGTH;
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGEWIDTH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.apache.sling.servlethelpers.MockSlingHttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import com.day.cq.dam.api.Asset;
 import com.day.image.Layer;
+import com.google.common.collect.ImmutableMap;
 
+import io.wcm.handler.media.format.MediaFormat;
+import io.wcm.handler.media.format.MediaFormatBuilder;
 import io.wcm.handler.media.testcontext.AppAemContext;
 import io.wcm.testing.mock.aem.junit5.AemContext;
 import io.wcm.testing.mock.aem.junit5.AemContextExtension;
@@ -41,6 +57,8 @@ import io.wcm.wcm.commons.contenttype.ContentType;
 @ExtendWith(AemContextExtension.class)
 class ImageFileServletTest {
 
+  private static final long ORIGINAL_CONTENT_LENGTH = 15471;
+
   private final AemContext context = AppAemContext.newAemContext();
 
   private ImageFileServlet underTest;
@@ -147,6 +165,128 @@ class ImageFileServletTest {
     assertResponseLayerSize(215, 102);
   }
 
+  @Test
+  void testGet_ETag_OutputFormat() throws Exception {
+    context.requestPathInfo().setSelectorString("image_file.215.102");
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.requestPathInfo().setSuffix("image.png");
+    underTest.service(context.request(), response);
+
+    assertNotEquals(etag, response.getHeader(MediaFileCacheHeader.HEADER_ETAG));
+  }
+
+  @Test
+  void testGet_IfNoneMatch() throws Exception {
+    context.requestPathInfo().setSelectorString("image_file.215.102");
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.request().addHeader(MediaFileCacheHeader.HEADER_IF_NONE_MATCH, etag);
+    underTest.service(context.request(), response);
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+  }
+
+  @Test
+  void testGet_Passthrough() throws Exception {
+    context.requestPathInfo().setSelectorString("image_file.215.102");
+    context.requestPathInfo().setSuffix("other_name.jpeg");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+    assertEquals(ContentType.JPEG, context.response().getContentType());
+    assertEquals(ORIGINAL_CONTENT_LENGTH, context.response().getOutput().length);
+  }
+
+  @Test
+  void testGet_Passthrough_FullCrop() throws Exception {
+    context.requestPathInfo().setSelectorString("image_file.215.102.0,0,215,102");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+    assertEquals(ORIGINAL_CONTENT_LENGTH, context.response().getOutput().length);
+  }
+
+  @Test
+  void testGet_Passthrough_Range() throws Exception {
+    setCurrentResourceWithContentLength();
+    context.requestPathInfo().setSelectorString("image_file.215.102");
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=0-99");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, context.response().getStatus());
+    assertEquals(ContentType.JPEG, context.response().getContentType());
+    assertEquals("bytes 0-99/" + ORIGINAL_CONTENT_LENGTH, context.response().getHeader(AbstractMediaFileServlet.HEADER_CONTENT_RANGE));
+    assertArrayEquals(getOriginalBinaryData(0, 100), context.response().getOutput());
+  }
+
+  @Test
+  void testGet_Range_Resized() throws Exception {
+    setCurrentResourceWithContentLength();
+    context.requestPathInfo().setSelectorString("image_file.100.50");
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=0-99");
+
+    underTest.service(context.request(), context.response());
+
+    // byte ranges are only supported when streaming the original binary
+    assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+    assertResponseLayerSize(100, 50);
+  }
+
+  @Test
+  void testGet_PixelBudgetExceeded() throws Exception {
+    underTest = context.registerInjectActivateService(new ImageFileServlet(),
+        "maxPixelsPerRequest", 1000L);
+    context.requestPathInfo().setSelectorString("image_file.100.50");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_NOT_FOUND, context.response().getStatus());
+  }
+
+  @Test
+  void testGet_PixelBudgetExceeded_UnsupportedFormat() throws Exception {
+    Asset asset = context.create().asset("/content/dam/sample.tif", ImagePixelBudgetTest.unsupportedImageData(),
+        "image/tiff", ImmutableMap.<String, Object>of(TIFF_IMAGEWIDTH, 215L, TIFF_IMAGELENGTH, 102L));
+    context.currentResource(asset.getOriginal().getPath());
+    underTest = context.registerInjectActivateService(new ImageFileServlet(),
+        "maxPixelsPerRequest", 1000L);
+    context.requestPathInfo().setSelectorString("image_file.100.50");
+
+    underTest.service(context.request(), context.response());
+
+    // dimension is read from asset metadata
+    assertEquals(HttpServletResponse.SC_NOT_FOUND, context.response().getStatus());
+  }
+
+  @Test
+  void testMatchesMediaFormat() {
+    MediaFormat ratioFormat = MediaFormatBuilder.create("ratio").ratio(16, 9).width(100, 2000).build();
+    assertTrue(ImageFileServlet.matchesMediaFormat(1600, 900, ratioFormat));
+    assertFalse(ImageFileServlet.matchesMediaFormat(1600, 1000, ratioFormat));
+    assertFalse(ImageFileServlet.matchesMediaFormat(3200, 1800, ratioFormat));
+
+    MediaFormat fixedFormat = MediaFormatBuilder.create("fixed").fixedDimension(215, 102).build();
+    assertTrue(ImageFileServlet.matchesMediaFormat(215, 102, fixedFormat));
+    assertFalse(ImageFileServlet.matchesMediaFormat(215, 103, fixedFormat));
+  }
+
+  @Test
+  void testIsAccepted() {
+    assertTrue(ImageFileServlet.isAccepted(ContentType.JPEG, "image/webp,image/apng,image/*,*/*;q=0.8"));
+    assertTrue(ImageFileServlet.isAccepted(ContentType.PNG, "image/png;q=0.5"));
+    assertFalse(ImageFileServlet.isAccepted(ContentType.PNG, "image/png;q=0, image/jpeg"));
+    assertFalse(ImageFileServlet.isAccepted(ContentType.PNG, "*/*"));
+    assertFalse(ImageFileServlet.isAccepted(ContentType.PNG, null));
+  }
+
   @Test
   void testGetImageFileNameJpeg() {
     assertEquals("myimage.jpg", ImageFileServlet.getImageFileName("myimage.jpg"));
@@ -171,4 +311,26 @@ class ImageFileServletTest {
     assertEquals(height, layer.getHeight());
   }
 
+  /**
+   * Current resource with known content length - required for byte range support.
+   */
+  private void setCurrentResourceWithContentLength() {
+    Resource resource = context.currentResource();
+    ResourceMetadata metadata = new ResourceMetadata();
+    metadata.putAll(resource.getResourceMetadata());
+    metadata.setContentLength(ORIGINAL_CONTENT_LENGTH);
+    context.currentResource(new ResourceWrapper(resource) {
+      @Override
+      public ResourceMetadata getResourceMetadata() {
+        return metadata;
+      }
+    });
+  }
+
+  private static byte[] getOriginalBinaryData(int start, int end) throws IOException {
+    try (InputStream is = ImageFileServletTest.class.getResourceAsStream("/sample_image_215x102.jpg")) {
+      return Arrays.copyOfRange(IOUtils.toByteArray(is), start, end);
+    }
+  }
+
 }
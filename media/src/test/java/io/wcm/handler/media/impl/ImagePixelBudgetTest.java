@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.media.impl;
+
+import static com.day.cq.commons.jcr.JcrConstants.JCR_CONTENT;
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGELENGTH;
+import static com.day.cq.dam.api.DamConstants.TIFF_IMAGEWIDTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.sling.api.resource.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.day.cq.dam.api.Asset;
+import com.google.common.collect.ImmutableMap;
+
+import io.wcm.handler.media.Dimension;
+import io.wcm.handler.media.testcontext.AppAemContext;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+class ImagePixelBudgetTest {
+
+  private final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  void testRequestBudget() {
+    ImagePixelBudget underTest = new ImagePixelBudget(100, 0);
+    assertTrue(underTest.isWithinRequestBudget(100));
+    assertFalse(underTest.isWithinRequestBudget(101));
+  }
+
+  @Test
+  void testRequestBudget_Unlimited() {
+    ImagePixelBudget underTest = new ImagePixelBudget(0, 0);
+    assertTrue(underTest.isWithinRequestBudget(Long.MAX_VALUE));
+  }
+
+  @Test
+  void testInFlightBudget() {
+    ImagePixelBudget underTest = new ImagePixelBudget(0, 100);
+    assertTrue(underTest.acquire(60));
+    assertFalse(underTest.acquire(60));
+    assertTrue(underTest.acquire(40));
+    assertEquals(100, underTest.getPixelsInFlight());
+    underTest.release(60);
+    underTest.release(40);
+    assertEquals(0, underTest.getPixelsInFlight());
+  }
+
+  @Test
+  void testInFlightBudget_SingleLargeImage() {
+    ImagePixelBudget underTest = new ImagePixelBudget(0, 100);
+    assertTrue(underTest.acquire(150));
+    assertFalse(underTest.acquire(1));
+    underTest.release(150);
+  }
+
+  @Test
+  void testGetPixels() {
+    ImagePixelBudget underTest = new ImagePixelBudget(100, 200);
+    assertEquals(50, underTest.getPixels(new Dimension(10, 5)));
+  }
+
+  @Test
+  void testGetPixels_UnknownDimension() {
+    ImagePixelBudget underTest = new ImagePixelBudget(100, 200);
+    assertEquals(200, underTest.getPixels(null));
+    assertTrue(underTest.acquire(underTest.getPixels(null)));
+    assertFalse(underTest.acquire(1));
+    underTest.release(200);
+  }
+
+  @Test
+  void testGetPixels_UnknownDimension_NoInFlightBudget() {
+    ImagePixelBudget underTest = new ImagePixelBudget(100, 0);
+    assertEquals(0, underTest.getPixels(null));
+  }
+
+  @Test
+  void testGetImageDimension() {
+    Resource resource = context.load().binaryFile("/sample_image_215x102.jpg", "/content/sample_image.jpg");
+    assertEquals(new Dimension(215, 102), ImagePixelBudget.getImageDimension(resource));
+  }
+
+  @Test
+  void testGetImageDimension_NoBinary() {
+    Resource resource = context.create().resource("/content/nobinarydata");
+    assertNull(ImagePixelBudget.getImageDimension(resource));
+  }
+
+  @Test
+  void testGetImageDimension_UnsupportedFormat_AssetMetadata() {
+    Asset asset = context.create().asset("/content/dam/sample.tif", unsupportedImageData(), "image/tiff",
+        ImmutableMap.<String, Object>of(TIFF_IMAGEWIDTH, 215L, TIFF_IMAGELENGTH, 102L));
+    Resource original = context.resourceResolver().getResource(asset.getOriginal().getPath());
+    assertEquals(new Dimension(215, 102), ImagePixelBudget.getImageDimension(original));
+    assertEquals(new Dimension(215, 102), ImagePixelBudget.getImageDimension(original.getChild(JCR_CONTENT)));
+  }
+
+  @Test
+  void testGetImageDimension_UnsupportedFormat_NoAssetMetadata() {
+    Asset asset = context.create().asset("/content/dam/sample.tif", unsupportedImageData(), "image/tiff",
+        ImmutableMap.<String, Object>of());
+    Resource original = context.resourceResolver().getResource(asset.getOriginal().getPath());
+    assertNull(ImagePixelBudget.getImageDimension(original));
+  }
+
+  @Test
+  void testGetImageDimension_UnsupportedFormat_NoAsset() {
+    Resource resource = context.load().binaryFile(unsupportedImageData(), "/content/sample.tif", "image/tiff");
+    assertNull(ImagePixelBudget.getImageDimension(resource));
+  }
+
+  static InputStream unsupportedImageData() {
+    return new ByteArrayInputStream("no image format supported by ImageIO".getBytes(StandardCharsets.UTF_8));
+  }
+
+}
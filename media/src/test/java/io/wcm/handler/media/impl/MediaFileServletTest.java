@@ -19,11 +19,23 @@
  */
 package io.wcm.handler.media.impl;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.apache.sling.servlethelpers.MockSlingHttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -85,6 +97,103 @@ class MediaFileServletTest {
     assertEquals("attachment;filename=\"sample_image.jpg\"", context.response().getHeader(AbstractMediaFileServlet.HEADER_CONTENT_DISPOSITION));
   }
 
+  @Test
+  void testGet_ETag() throws Exception {
+    underTest.service(context.request(), context.response());
+
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+    assertNotNull(etag);
+    assertEquals('"', etag.charAt(0));
+  }
+
+  @Test
+  void testGet_IfNoneMatch() throws Exception {
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.request().addHeader(MediaFileCacheHeader.HEADER_IF_NONE_MATCH, "\"other\", " + etag);
+    underTest.service(context.request(), response);
+
+    assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+    assertEquals(0, response.getOutput().length);
+  }
+
+  @Test
+  void testGet_IfNoneMatch_NotMatching() throws Exception {
+    context.request().addHeader(MediaFileCacheHeader.HEADER_IF_NONE_MATCH, "\"other\"");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+    assertEquals(EXPECTED_CONTENT_LENGTH, context.response().getOutput().length);
+  }
+
+  @Test
+  void testGet_ETag_DifferentSelectors() throws Exception {
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.requestPathInfo().setSelectorString(AbstractMediaFileServlet.SELECTOR_DOWNLOAD);
+    underTest.service(context.request(), response);
+
+    assertNotEquals(etag, response.getHeader(MediaFileCacheHeader.HEADER_ETAG));
+  }
+
+  @Test
+  void testGet_Range() throws Exception {
+    setCurrentResourceWithContentLength();
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=100-199");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, context.response().getStatus());
+    assertEquals("bytes", context.response().getHeader(AbstractMediaFileServlet.HEADER_ACCEPT_RANGES));
+    assertEquals("bytes 100-199/" + EXPECTED_CONTENT_LENGTH, context.response().getHeader(AbstractMediaFileServlet.HEADER_CONTENT_RANGE));
+    assertEquals(100, context.response().getContentLength());
+    assertArrayEquals(getOriginalBinaryData(100, 200), context.response().getOutput());
+  }
+
+  @Test
+  void testGet_Range_Unsatisfiable() throws Exception {
+    setCurrentResourceWithContentLength();
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=" + EXPECTED_CONTENT_LENGTH + "-");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, context.response().getStatus());
+    assertEquals("bytes */" + EXPECTED_CONTENT_LENGTH, context.response().getHeader(AbstractMediaFileServlet.HEADER_CONTENT_RANGE));
+  }
+
+  @Test
+  void testGet_Range_IfRange() throws Exception {
+    setCurrentResourceWithContentLength();
+    underTest.service(context.request(), context.response());
+    String etag = context.response().getHeader(MediaFileCacheHeader.HEADER_ETAG);
+
+    MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=-100");
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_IF_RANGE, etag);
+    underTest.service(context.request(), response);
+
+    assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+    assertArrayEquals(getOriginalBinaryData((int)EXPECTED_CONTENT_LENGTH - 100, (int)EXPECTED_CONTENT_LENGTH), response.getOutput());
+  }
+
+  @Test
+  void testGet_Range_IfRange_NotMatching() throws Exception {
+    setCurrentResourceWithContentLength();
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_RANGE, "bytes=100-199");
+    context.request().addHeader(AbstractMediaFileServlet.HEADER_IF_RANGE, "\"other\"");
+
+    underTest.service(context.request(), context.response());
+
+    assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+    assertNull(context.response().getHeader(AbstractMediaFileServlet.HEADER_CONTENT_RANGE));
+    assertEquals(EXPECTED_CONTENT_LENGTH, context.response().getOutput().length);
+  }
+
   @Test
   void testGet_NoResource() throws Exception {
     context.currentResource((Resource)null);
@@ -103,4 +212,26 @@ class MediaFileServletTest {
     assertEquals(HttpServletResponse.SC_NOT_FOUND, context.response().getStatus());
   }
 
+  /**
+   * Current resource with known content length - required for byte range support.
+   */
+  private void setCurrentResourceWithContentLength() {
+    Resource resource = context.currentResource();
+    ResourceMetadata metadata = new ResourceMetadata();
+    metadata.putAll(resource.getResourceMetadata());
+    metadata.setContentLength(EXPECTED_CONTENT_LENGTH);
+    context.currentResource(new ResourceWrapper(resource) {
+      @Override
+      public ResourceMetadata getResourceMetadata() {
+        return metadata;
+      }
+    });
+  }
+
+  private static byte[] getOriginalBinaryData(int start, int end) throws IOException {
+    try (InputStream is = MediaFileServletTest.class.getResourceAsStream("/sample_image_215x102.jpg")) {
+      return Arrays.copyOfRange(IOUtils.toByteArray(is), start, end);
+    }
+  }
+
 }
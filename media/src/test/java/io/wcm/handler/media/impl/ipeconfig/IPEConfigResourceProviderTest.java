@@ -26,6 +26,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
@@ -67,6 +69,7 @@ class IPEConfigResourceProviderTest {
   MediaFormatHandler mediaFormatHandler;
 
   private Resource componentContentResource;
+  private IPEConfigResourceProvider underTest;
 
   @BeforeEach
   void setUp() {
@@ -74,7 +77,7 @@ class IPEConfigResourceProviderTest {
 
     context.registerAdapter(ResourceResolver.class, ComponentManager.class, componentManager);
     context.registerAdapter(Resource.class, MediaFormatHandler.class, mediaFormatHandler);
-    context.registerInjectActivateService(new IPEConfigResourceProvider());
+    underTest = context.registerInjectActivateService(new IPEConfigResourceProvider());
 
     context.build().resource("/apps/app1/components/comp1")
         .resource("cq:editConfig/cq:inplaceEditing",
@@ -137,4 +140,20 @@ class IPEConfigResourceProviderTest {
         "name", SHOWROOM_STANDARD.getLabel() + " (1055:500)", "ratio", 1 / SHOWROOM_STANDARD.getRatio()));
   }
 
+  @Test
+  @SuppressWarnings("null")
+  void testCaching() {
+    String path = IPEConfigResourceProvider.buildPath(componentContentResource.getPath(),
+        ImmutableSet.of(EDITORIAL_1COL.getName(), SHOWROOM_STANDARD.getName()));
+
+    assertNotNull(context.resourceResolver().getResource(path));
+    assertNotNull(context.resourceResolver().getResource(path + "/plugins/crop/aspectRatios/" + EDITORIAL_1COL.getName()));
+    verify(componentManager, times(1)).getComponentOfResource(any(Resource.class));
+
+    // invalidate cache on component change
+    underTest.onChange(ImmutableList.of());
+    assertNotNull(context.resourceResolver().getResource(path));
+    verify(componentManager, times(2)).getComponentOfResource(any(Resource.class));
+  }
+
 }
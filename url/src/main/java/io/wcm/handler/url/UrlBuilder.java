@@ -19,6 +19,7 @@
  */
 package io.wcm.handler.url;
 
+import java.io.IOException;
 import java.util.Set;
 
 import org.apache.sling.api.resource.Resource;
@@ -98,6 +99,15 @@ public interface UrlBuilder {
   @Nullable
   String build();
 
+  /**
+   * Build URL and append it to the given appendable without building an intermediate string.
+   * If no URL can be built nothing is appended.
+   * @param appendable Appendable to write the URL to
+   * @return true if an URL was appended
+   * @throws IOException I/O exception from appendable
+   */
+  boolean build(@NotNull Appendable appendable) throws IOException;
+
   /**
    * Build externalized URL that links to a content page.
    * This may only be used if a page was given in the {@link UrlHandler#get(Page)} call.
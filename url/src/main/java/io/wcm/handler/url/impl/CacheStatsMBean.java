@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+/**
+ * Statistics of a cache maintained by the URL handler, exposed via JMX.
+ */
+public interface CacheStatsMBean {
+
+  /**
+   * @return Number of cache entries
+   */
+  long getSize();
+
+  /**
+   * @return Number of cache hits
+   */
+  long getHitCount();
+
+  /**
+   * @return Number of cache misses
+   */
+  long getMissCount();
+
+  /**
+   * @return Ratio of cache hits to requests
+   */
+  double getHitRate();
+
+  /**
+   * @return Number of entries evicted because the max. size was reached
+   */
+  long getEvictionCount();
+
+  /**
+   * Removes all cache entries.
+   */
+  void invalidateAll();
+
+}
@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.jetbrains.annotations.NotNull;
+
+import com.day.cq.wcm.api.NameConstants;
+import com.google.common.cache.Cache;
+
+/**
+ * Helper methods for invalidating caches keyed by resource path on resource changes that affect
+ * context-aware configuration context paths.
+ */
+final class ContextResourceChanges {
+
+  /**
+   * Property defining a context-aware configuration context.
+   */
+  static final String PN_CONFIG_REF = "sling:configRef";
+
+  private static final String JCR_CONTENT_SUFFIX = "/" + NameConstants.NN_CONTENT;
+
+  private ContextResourceChanges() {
+    // static methods only
+  }
+
+  /**
+   * Checks if the given change may affect context-aware configuration context paths.
+   * @param change Resource change
+   * @return true if a resource was removed or a sling:configRef property was changed
+   */
+  @SuppressWarnings("deprecation")
+  static boolean isContextChange(@NotNull ResourceChange change) {
+    if (change.getType() == ChangeType.REMOVED) {
+      return true;
+    }
+    // added resources report their properties in separate change events
+    if (change.getType() == ChangeType.ADDED) {
+      return false;
+    }
+    Set<String> addedPropertyNames = change.getAddedPropertyNames();
+    Set<String> changedPropertyNames = change.getChangedPropertyNames();
+    Set<String> removedPropertyNames = change.getRemovedPropertyNames();
+    if (addedPropertyNames == null && changedPropertyNames == null && removedPropertyNames == null) {
+      // no property information available - assume context may have changed
+      return true;
+    }
+    return (addedPropertyNames != null && addedPropertyNames.contains(PN_CONFIG_REF))
+        || (changedPropertyNames != null && changedPropertyNames.contains(PN_CONFIG_REF))
+        || (removedPropertyNames != null && removedPropertyNames.contains(PN_CONFIG_REF));
+  }
+
+  /**
+   * Removes all cache entries with a key matching the path of the changed resource or a descendant of it.
+   * Changes in a jcr:content node are handled as changes of the page.
+   * @param cache Cache with resource paths as keys
+   * @param change Resource change
+   */
+  static void invalidate(@NotNull Cache<String, ?> cache, @NotNull ResourceChange change) {
+    String path = change.getPath();
+    if (StringUtils.endsWith(path, JCR_CONTENT_SUFFIX)) {
+      path = StringUtils.removeEnd(path, JCR_CONTENT_SUFFIX);
+    }
+    String pathPrefix = path + "/";
+    String changedPath = path;
+    cache.asMap().keySet().removeIf(key -> StringUtils.equals(key, changedPath) || StringUtils.startsWith(key, pathPrefix));
+  }
+
+}
@@ -21,8 +21,6 @@ package io.wcm.handler.url.impl;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
@@ -35,7 +33,7 @@ import io.wcm.sling.commons.util.Escape;
 /**
  * Utility methods for externalizing URLs.
  */
-final class Externalizer {
+public final class Externalizer {
 
   private Externalizer() {
     // static util methods only
@@ -52,6 +50,22 @@ final class Externalizer {
    *         configured), and the path is URL-encoded if it contains special chars.
    */
   public static @Nullable String externalizeUrl(@NotNull String url, @NotNull ResourceResolver resolver, @Nullable SlingHttpServletRequest request) {
+    return externalizeUrl(url, resolver, request, null);
+  }
+
+  /**
+   * Externalizes an URL by applying Sling Mapping. Hostname and scheme are not added because they are added by the
+   * link handler depending on site URL configuration and secure/non-secure mode. URLs that are already externalized
+   * remain untouched.
+   * @param url Unexternalized URL (without scheme or hostname)
+   * @param resolver Resource resolver
+   * @param request Request
+   * @param mappingCache Cache for Sling Mapping results (optional)
+   * @return Exernalized URL without scheme or hostname, but with short URLs (if configured in Sling Mapping is
+   *         configured), and the path is URL-encoded if it contains special chars.
+   */
+  public static @Nullable String externalizeUrl(@NotNull String url, @NotNull ResourceResolver resolver, @Nullable SlingHttpServletRequest request,
+      @Nullable SlingMappingCache mappingCache) {
 
     // apply externalization only path part
     String path = url;
@@ -66,6 +80,26 @@ final class Externalizer {
 
     // apply reverse mapping based on current sling mapping configuration for current request
     // e.g. to support a host-based prefix stripping mapping configuration configured at /etc/map
+    final String unmappedPath = path;
+    if (mappingCache != null) {
+      path = mappingCache.map(unmappedPath, resolver, request, () -> mapPath(unmappedPath, resolver, request));
+    }
+    else {
+      path = mapPath(unmappedPath, resolver, request);
+    }
+
+    // build full URL again
+    if (path == null) {
+      return null;
+    }
+    else {
+      return path + (urlRemainder != null ? urlRemainder : "");
+    }
+  }
+
+  private static @Nullable String mapPath(@NotNull String unmappedPath, @NotNull ResourceResolver resolver,
+      @Nullable SlingHttpServletRequest request) {
+    String path;
 
     // please note: the sling map method does a lot of things:
     // 1. applies reverse mapping depending on the sling mapping configuration
@@ -74,29 +108,21 @@ final class Externalizer {
     // 3. adds webapp context path if required
     // 4. url-encodes the whole url
     if (request != null) {
-      path = resolver.map(request, path);
+      path = resolver.map(request, unmappedPath);
     }
     else {
-      path = resolver.map(path);
+      path = resolver.map(unmappedPath);
     }
 
     // remove scheme and hostname (probably added by sling mapping), but leave path in escaped form
     try {
       path = new URI(path).getRawPath();
       // replace %2F back to / for better readability
-      path = StringUtils.replace(path, "%2F", "/");
+      return StringUtils.replace(path, "%2F", "/");
     }
     catch (URISyntaxException ex) {
       throw new RuntimeException("Sling map method returned invalid URI: " + path, ex);
     }
-
-    // build full URL again
-    if (path == null) {
-      return null;
-    }
-    else {
-      return path + (urlRemainder != null ? urlRemainder : "");
-    }
   }
 
   /**
@@ -139,28 +165,47 @@ final class Externalizer {
     return path + (urlRemainder != null ? urlRemainder : "");
   }
 
-  /*
-   * Detect as externalized:
-   * - everything staring with protocol and a colon is handled as externalized (http:, tel:, mailto:, javascript: etc.)
-   * - everything starting with // or # is handles as exteranlized
-   * - all other strings handles as not externalized
-   */
-  private static final Pattern EXTERNALIZED_PATTERN = Pattern.compile("^([^/]+:|//|#).*$");
-
   /**
    * Checks if the given URL is already externalized.
-   * For this check some heuristics are applied.
+   * For this check some heuristics are applied:
+   * <ul>
+   * <li>everything staring with protocol and a colon is handled as externalized (http:, tel:, mailto:, javascript:
+   * etc.)</li>
+   * <li>everything starting with // or # is handles as exteranlized</li>
+   * <li>all other strings handles as not externalized</li>
+   * </ul>
    * @param url URL
    * @return true if path is already externalized.
    */
   public static boolean isExternalized(@NotNull String url) {
-    return EXTERNALIZED_PATTERN.matcher(url).matches();
+    int length = url.length();
+    if (length == 0) {
+      return false;
+    }
+    char first = url.charAt(0);
+    if (first == '#') {
+      return true;
+    }
+    if (first == '/') {
+      return length > 1 && url.charAt(1) == '/';
+    }
+    // protocol: at least one char followed by a colon, without any slash before
+    for (int i = 1; i < length; i++) {
+      char c = url.charAt(i);
+      if (c == ':') {
+        return true;
+      }
+      if (c == '/') {
+        return false;
+      }
+    }
+    return false;
   }
 
   private static final String MANGLED_NAMESPACE_PREFIX = "/_";
-  private static final String MANGLED_NAMESPACE_SUFFIX = "_";
+  private static final char MANGLED_NAMESPACE_SUFFIX = '_';
   private static final char NAMESPACE_SEPARATOR = ':';
-  private static final Pattern NAMESPACE_PATTERN = Pattern.compile("/([^:/]+):");
+  private static final char PATH_SEPARATOR = '/';
 
   /**
    * Mangle the namespaces in the given path for usage in sling-based URLs.
@@ -171,16 +216,42 @@ final class Externalizer {
    * @return Mangled path
    */
   public static @NotNull String mangleNamespaces(@NotNull String path) {
-    if (!StringUtils.contains(path, NAMESPACE_SEPARATOR)) {
+    if (path.indexOf(NAMESPACE_SEPARATOR) < 0) {
       return path;
     }
-    Matcher matcher = NAMESPACE_PATTERN.matcher(path);
-    StringBuffer sb = new StringBuffer();
-    while (matcher.find()) {
-      String replacement = MANGLED_NAMESPACE_PREFIX + matcher.group(1) + MANGLED_NAMESPACE_SUFFIX;
-      matcher.appendReplacement(sb, replacement);
+    int length = path.length();
+    StringBuilder sb = null;
+    int copiedPos = 0;
+    int pos = path.indexOf(PATH_SEPARATOR);
+    while (pos >= 0 && pos < length - 1) {
+      // find end of path segment or namespace separator
+      int end = pos + 1;
+      while (end < length && path.charAt(end) != NAMESPACE_SEPARATOR && path.charAt(end) != PATH_SEPARATOR) {
+        end++;
+      }
+      if (end < length && path.charAt(end) == NAMESPACE_SEPARATOR && end > pos + 1) {
+        // replace /ns: with /_ns_
+        if (sb == null) {
+          sb = new StringBuilder(length + 8);
+        }
+        sb.append(path, copiedPos, pos)
+            .append(MANGLED_NAMESPACE_PREFIX)
+            .append(path, pos + 1, end)
+            .append(MANGLED_NAMESPACE_SUFFIX);
+        copiedPos = end + 1;
+        pos = path.indexOf(PATH_SEPARATOR, copiedPos);
+      }
+      else if (end < length && path.charAt(end) == PATH_SEPARATOR) {
+        pos = end;
+      }
+      else {
+        pos = path.indexOf(PATH_SEPARATOR, end);
+      }
+    }
+    if (sb == null) {
+      return path;
     }
-    matcher.appendTail(sb);
+    sb.append(path, copiedPos, length);
     return sb.toString();
   }
 
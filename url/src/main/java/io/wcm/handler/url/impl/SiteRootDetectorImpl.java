@@ -19,14 +19,22 @@
  */
 package io.wcm.handler.url.impl;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.caconfig.resource.ConfigurationResourceResolver;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,9 +46,25 @@ import io.wcm.wcm.commons.util.Path;
 
 /**
  * Implements {@link SiteRootDetector}.
+ * The detected site root levels are cached until a context-aware configuration context path
+ * (sling:configRef property) is changed or a resource is removed.
  */
-@Component(service = SiteRootDetector.class)
-public class SiteRootDetectorImpl implements SiteRootDetector {
+@Component(service = { SiteRootDetector.class, ResourceChangeListener.class, CacheStatsMBean.class }, property = {
+    ResourceChangeListener.PATHS + "=/content",
+    "jmx.objectname=io.wcm.handler.url:type=SiteRootDetectorCache"
+})
+@Designate(ocd = SiteRootDetectorImpl.Config.class)
+public class SiteRootDetectorImpl implements SiteRootDetector, ResourceChangeListener, ExternalResourceChangeListener,
+    CacheStatsMBean {
+
+  @ObjectClassDefinition(name = "wcm.io URL Handler Site Root Detector",
+      description = "Detects site root level using the context-aware configuration context path.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Cache max. size", description = "Max. number of resource paths for which the site root level is cached.")
+    long cacheMaxSize() default 10000;
+
+  }
 
   private static final int INVALID_SITE_ROOT_LEVEL = -1;
 
@@ -50,10 +74,15 @@ public class SiteRootDetectorImpl implements SiteRootDetector {
   private static final Logger log = LoggerFactory.getLogger(SiteRootDetectorImpl.class);
 
   // cache resolving of site root level per resource path
-  private final Cache<String, Integer> cache = CacheBuilder.newBuilder()
-      .expireAfterWrite(1, TimeUnit.MINUTES)
-      .maximumSize(10000)
-      .build();
+  private Cache<String, Integer> cache;
+
+  @Activate
+  private void activate(Config config) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(config.cacheMaxSize())
+        .recordStats()
+        .build();
+  }
 
   @Override
   public int getSiteRootLevel(@Nullable Resource contextResource) {
@@ -84,4 +113,44 @@ public class SiteRootDetectorImpl implements SiteRootDetector {
     return INVALID_SITE_ROOT_LEVEL;
   }
 
+  @Override
+  public void onChange(@NotNull List<ResourceChange> changes) {
+    for (ResourceChange change : changes) {
+      if (ContextResourceChanges.isContextChange(change)) {
+        log.debug("Invalidate site root level cache for {}", change.getPath());
+        ContextResourceChanges.invalidate(cache, change);
+      }
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  @Override
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the result of applying Sling Mapping to a path for a given request host, scheme and port.
+ * The cache is invalidated when the resource resolver has refreshed its mapping entries after changes
+ * of the Sling Mapping configuration in /etc/map, vanity paths or aliases. Cached entries expire additionally
+ * after a fixed time.
+ */
+@Component(service = { SlingMappingCache.class, EventHandler.class }, property = {
+    EventConstants.EVENT_TOPIC + "=" + SlingConstants.TOPIC_RESOURCE_RESOLVER_MAPPING_CHANGED
+})
+public class SlingMappingCache implements EventHandler {
+
+  private static final long CACHE_MAX_SIZE = 10000;
+  private static final long CACHE_EXPIRE_MINUTES = 10;
+
+  private static final Logger log = LoggerFactory.getLogger(SlingMappingCache.class);
+
+  // cache mapped path per request scheme/host/port, context path, user and path
+  private final Cache<String, Optional<String>> cache = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_MAX_SIZE)
+      .expireAfterWrite(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .build();
+
+  // incremented on each mapping change - results of mappings started before are not cached
+  private final AtomicLong mappingGeneration = new AtomicLong();
+
+  /**
+   * Gets mapped path from cache, or applies the mapping and stores the result in the cache.
+   * @param path Path to map (without query string or fragment)
+   * @param resolver Resource resolver
+   * @param request Request
+   * @param mapper Applies Sling Mapping to the path
+   * @return Mapped path
+   */
+  @SuppressWarnings("null")
+  public @Nullable String map(@NotNull String path, @NotNull ResourceResolver resolver,
+      @Nullable SlingHttpServletRequest request, @NotNull Supplier<String> mapper) {
+    String key = buildKey(path, resolver, request);
+    Optional<String> mappedPath = cache.getIfPresent(key);
+    if (mappedPath == null) {
+      long generation = mappingGeneration.get();
+      mappedPath = Optional.ofNullable(mapper.get());
+      if (generation == mappingGeneration.get()) {
+        cache.put(key, mappedPath);
+      }
+    }
+    return mappedPath.orElse(null);
+  }
+
+  private static String buildKey(@NotNull String path, @NotNull ResourceResolver resolver,
+      @Nullable SlingHttpServletRequest request) {
+    StringBuilder key = new StringBuilder();
+    if (request != null) {
+      key.append(request.getScheme()).append("://")
+          .append(request.getServerName()).append(':')
+          .append(request.getServerPort())
+          .append(StringUtils.defaultString(request.getContextPath()));
+    }
+    key.append('|').append(StringUtils.defaultString(resolver.getUserID()))
+        .append('|').append(path);
+    return key.toString();
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    if (StringUtils.equals(event.getTopic(), SlingConstants.TOPIC_RESOURCE_RESOLVER_MAPPING_CHANGED)) {
+      log.debug("Invalidate sling mapping cache due to changed resource resolver mapping.");
+      mappingGeneration.incrementAndGet();
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * @return Number of cached mappings
+   */
+  long size() {
+    return cache.size();
+  }
+
+}
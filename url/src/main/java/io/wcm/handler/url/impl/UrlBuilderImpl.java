@@ -19,6 +19,7 @@
  */
 package io.wcm.handler.url.impl;
 
+import java.io.IOException;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -128,14 +129,30 @@ final class UrlBuilderImpl implements UrlBuilder {
 
   @Override
   public String build() {
-    String url = urlHandler.buildUrl(path, selectors, extension, suffix);
-    if (StringUtils.isNotEmpty(queryString) || inheritableParameterNames != null) {
-      url = urlHandler.appendQueryString(url, queryString, inheritableParameterNames);
+    StringBuilder url = new StringBuilder(estimateLength());
+    if (!urlHandler.buildUrl(url, path, selectors, extension, suffix, queryString, inheritableParameterNames, fragment)) {
+      return null;
     }
-    if (StringUtils.isNotEmpty(fragment)) {
-      url = urlHandler.setFragment(url, fragment);
+    return url.toString();
+  }
+
+  @Override
+  public boolean build(@NotNull Appendable appendable) throws IOException {
+    if (appendable instanceof StringBuilder) {
+      return urlHandler.buildUrl((StringBuilder)appendable, path, selectors, extension, suffix,
+          queryString, inheritableParameterNames, fragment);
     }
-    return url;
+    StringBuilder url = new StringBuilder(estimateLength());
+    if (!urlHandler.buildUrl(url, path, selectors, extension, suffix, queryString, inheritableParameterNames, fragment)) {
+      return false;
+    }
+    appendable.append(url);
+    return true;
+  }
+
+  private int estimateLength() {
+    return UrlHandlerImpl.estimateLength(path, selectors, extension, suffix)
+        + StringUtils.length(queryString) + StringUtils.length(fragment);
   }
 
   @Override
@@ -20,18 +20,26 @@
 package io.wcm.handler.url.impl;
 
 import java.lang.annotation.Annotation;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.adapter.AdapterFactory;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.caconfig.ConfigurationBuilder;
 import org.apache.sling.caconfig.resource.ConfigurationResourceResolver;
+import org.jetbrains.annotations.NotNull;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,34 +52,59 @@ import io.wcm.sling.commons.caservice.ContextAwareServiceResolver;
 
 /**
  * Adapts resources or requests to {@link UrlHandlerConfig} and {@link SiteConfig}.
+ * The site configuration is cached per context path until context-aware configuration data
+ * or context paths are changed.
  */
-@Component(service = AdapterFactory.class,
+@Component(service = { AdapterFactory.class, ResourceChangeListener.class, CacheStatsMBean.class },
     property = {
         AdapterFactory.ADAPTABLE_CLASSES + "=org.apache.sling.api.resource.Resource",
         AdapterFactory.ADAPTABLE_CLASSES + "=org.apache.sling.api.SlingHttpServletRequest",
         AdapterFactory.ADAPTER_CLASSES + "=io.wcm.handler.url.spi.UrlHandlerConfig",
-        AdapterFactory.ADAPTER_CLASSES + "=io.wcm.handler.url.SiteConfig"
+        AdapterFactory.ADAPTER_CLASSES + "=io.wcm.handler.url.SiteConfig",
+        ResourceChangeListener.PATHS + "=/content",
+        ResourceChangeListener.PATHS + "=/conf",
+        ResourceChangeListener.PATHS + "=/apps/conf",
+        ResourceChangeListener.PATHS + "=/libs/conf",
+        "jmx.objectname=io.wcm.handler.url:type=SiteConfigCache"
     })
-public class UrlHandlerAdapterFactory implements AdapterFactory {
+@Designate(ocd = UrlHandlerAdapterFactory.Config.class)
+public class UrlHandlerAdapterFactory implements AdapterFactory, ResourceChangeListener, ExternalResourceChangeListener,
+    CacheStatsMBean {
+
+  @ObjectClassDefinition(name = "wcm.io URL Handler Adapter Factory",
+      description = "Adapts resources or requests to URL handler configuration and site configuration.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Cache max. size", description = "Max. number of context paths for which the site configuration is cached.")
+    long cacheMaxSize() default 10000;
+
+  }
 
   @Reference
   private ContextAwareServiceResolver serviceResolver;
   @Reference
   private ConfigurationResourceResolver configurationResourceResolver;
+  @Reference
+  private UrlHandlerConfigCache urlHandlerConfigCache;
 
   private static final Logger log = LoggerFactory.getLogger(UrlHandlerAdapterFactory.class);
 
-  // cache resolving of site root level per resource path
-  private final Cache<String, SiteConfig> siteConfigCache = CacheBuilder.newBuilder()
-      .expireAfterWrite(5, TimeUnit.SECONDS)
-      .maximumSize(10000)
-      .build();
+  // cache site config per context path
+  private Cache<String, SiteConfig> siteConfigCache;
+
+  @Activate
+  private void activate(Config config) {
+    siteConfigCache = CacheBuilder.newBuilder()
+        .maximumSize(config.cacheMaxSize())
+        .recordStats()
+        .build();
+  }
 
   @SuppressWarnings({ "unchecked", "null" })
   @Override
   public <AdapterType> AdapterType getAdapter(Object adaptable, Class<AdapterType> type) {
     if (type == UrlHandlerConfig.class) {
-      return (AdapterType)serviceResolver.resolve(UrlHandlerConfig.class, (Adaptable)adaptable);
+      return (AdapterType)getUrlHandlerConfig((Adaptable)adaptable);
     }
     if (type == SiteConfig.class) {
       return (AdapterType)getSiteConfigForSiteRoot(getContextResource(adaptable));
@@ -79,6 +112,15 @@ public class UrlHandlerAdapterFactory implements AdapterFactory {
     return null;
   }
 
+  private UrlHandlerConfig getUrlHandlerConfig(Adaptable adaptable) {
+    Resource contextResource = getContextResource(adaptable);
+    if (contextResource == null) {
+      return serviceResolver.resolve(UrlHandlerConfig.class, adaptable);
+    }
+    return urlHandlerConfigCache.get(contextResource.getPath(),
+        () -> serviceResolver.resolve(UrlHandlerConfig.class, adaptable));
+  }
+
   private Resource getContextResource(Object adaptable) {
     if (adaptable instanceof Resource) {
       return (Resource)adaptable;
@@ -100,7 +142,7 @@ public class UrlHandlerAdapterFactory implements AdapterFactory {
       return getSiteConfigForResource(contextResource);
     }
 
-    // get site config for site root resource and cache the result (for a short time)
+    // get site config for site root resource and cache the result
     try {
       return siteConfigCache.get(contextRootPath, () -> {
         Resource siteRootResource = contextResource.getResourceResolver().getResource(contextRootPath);
@@ -147,4 +189,52 @@ public class UrlHandlerAdapterFactory implements AdapterFactory {
     return contextResource.adaptTo(ConfigurationBuilder.class).as(SiteConfig.class);
   }
 
+  @Override
+  public void onChange(@NotNull List<ResourceChange> changes) {
+    for (ResourceChange change : changes) {
+      if (StringUtils.startsWith(change.getPath(), "/content/")) {
+        if (ContextResourceChanges.isContextChange(change)) {
+          log.debug("Invalidate site config cache for {}", change.getPath());
+          ContextResourceChanges.invalidate(siteConfigCache, change);
+        }
+      }
+      else {
+        // configuration data changed - may affect all context paths via config references or inheritance
+        log.debug("Invalidate site config cache due to change of {}", change.getPath());
+        siteConfigCache.invalidateAll();
+        return;
+      }
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return siteConfigCache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return siteConfigCache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return siteConfigCache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return siteConfigCache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return siteConfigCache.stats().evictionCount();
+  }
+
+  @Override
+  public void invalidateAll() {
+    siteConfigCache.invalidateAll();
+  }
+
 }
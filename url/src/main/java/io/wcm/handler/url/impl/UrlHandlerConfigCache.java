@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+
+/**
+ * Caches the URL handler configuration resolved for a resource path. Context-aware services are matched
+ * by path only, so the result depends only on the path and the registered URL handler configuration services.
+ * The cache is invalidated when a URL handler configuration service is registered, modified or unregistered.
+ * Cached entries expire additionally after a fixed time.
+ */
+@Component(service = { UrlHandlerConfigCache.class, CacheStatsMBean.class }, property = {
+    "jmx.objectname=io.wcm.handler.url:type=UrlHandlerConfigCache"
+})
+@Designate(ocd = UrlHandlerConfigCache.Config.class)
+public class UrlHandlerConfigCache implements CacheStatsMBean {
+
+  @ObjectClassDefinition(name = "wcm.io URL Handler Configuration Cache",
+      description = "Caches the URL handler configuration resolved for resource paths.")
+  static @interface Config {
+
+    @AttributeDefinition(name = "Cache max. size", description = "Max. number of resource paths for which the URL handler configuration is cached.")
+    long cacheMaxSize() default 10000;
+
+  }
+
+  private static final long CACHE_EXPIRE_MINUTES = 10;
+
+  private static final Logger log = LoggerFactory.getLogger(UrlHandlerConfigCache.class);
+
+  // cache resolved URL handler config per resource path
+  private volatile Cache<String, UrlHandlerConfig> cache;
+
+  // incremented on each service change - results of resolvings started before are not cached
+  private final AtomicLong serviceGeneration = new AtomicLong();
+
+  @Reference(service = UrlHandlerConfig.class, cardinality = ReferenceCardinality.MULTIPLE,
+      policy = ReferencePolicy.DYNAMIC, policyOption = ReferencePolicyOption.GREEDY,
+      updated = "updatedUrlHandlerConfig")
+  void bindUrlHandlerConfig(ServiceReference<UrlHandlerConfig> reference) {
+    serviceChanged();
+  }
+
+  void updatedUrlHandlerConfig(ServiceReference<UrlHandlerConfig> reference) {
+    serviceChanged();
+  }
+
+  void unbindUrlHandlerConfig(ServiceReference<UrlHandlerConfig> reference) {
+    serviceChanged();
+  }
+
+  @Activate
+  private void activate(Config config) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(config.cacheMaxSize())
+        .expireAfterWrite(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Gets URL handler configuration from cache, or resolves it and stores the result in the cache.
+   * @param path Resource path
+   * @param resolver Resolves the URL handler configuration for the resource
+   * @return URL handler configuration
+   */
+  public @Nullable UrlHandlerConfig get(@NotNull String path, @NotNull Supplier<UrlHandlerConfig> resolver) {
+    UrlHandlerConfig urlHandlerConfig = cache.getIfPresent(path);
+    if (urlHandlerConfig == null) {
+      long generation = serviceGeneration.get();
+      urlHandlerConfig = resolver.get();
+      if (urlHandlerConfig != null && generation == serviceGeneration.get()) {
+        cache.put(path, urlHandlerConfig);
+      }
+    }
+    return urlHandlerConfig;
+  }
+
+  private void serviceChanged() {
+    serviceGeneration.incrementAndGet();
+    // references are bound before activation
+    Cache<String, UrlHandlerConfig> currentCache = cache;
+    if (currentCache != null) {
+      log.debug("Invalidate URL handler config cache due to changed URL handler config services.");
+      currentCache.invalidateAll();
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return cache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  @Override
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+}
@@ -19,6 +19,11 @@
  */
 package io.wcm.handler.url.impl;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -61,6 +66,8 @@ public final class UrlHandlerImpl implements UrlHandler {
   private ResourceResolver resolver;
   @OSGiService
   private SlingSettingsService slingSettings;
+  @OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+  private SlingMappingCache slingMappingCache;
 
   // optional injections (only available if called inside a request)
   @SlingObject(injectionStrategy = InjectionStrategy.OPTIONAL)
@@ -107,31 +114,74 @@ public final class UrlHandlerImpl implements UrlHandler {
       return resource.getPath();
     }
 
-    // split up paths
-    String[] contextPathParts = StringUtils.split(Path.getOriginalPath(contextResource.getPath(), resolver), "/");
-    String[] pathParts = StringUtils.split(Path.getOriginalPath(resource.getPath(), resolver), "/");
+    // rewritten paths are cached per request - typically all links of a page are rewritten to the same context
+    RewritePathToContextCache cache = RequestAttributeCache.get(request, RewritePathToContextCache.class, RewritePathToContextCache::new);
+    if (cache == null) {
+      return rewritePathToContextRootPath(resource, getContextRootPath(contextResource));
+    }
+    // results depend on the site root levels of the URL handler config and the mapping of the resource resolver
+    Optional<String> contextRootPath = cache.contextRootPaths.computeIfAbsent(
+        Arrays.asList(urlHandlerConfig, resolver, contextResource.getPath()),
+        key -> Optional.ofNullable(getContextRootPath(contextResource)));
+    if (!contextRootPath.isPresent()) {
+      return resource.getPath();
+    }
+    return cache.rewrittenPaths.computeIfAbsent(
+        Arrays.asList(urlHandlerConfig, resolver, resource.getPath(), contextRootPath.get()),
+        key -> rewritePathToContextRootPath(resource, contextRootPath.get()));
+  }
 
-    // check if both paths are valid - return unchanged path if not
+  /**
+   * Gets the site root path of the context resource, or null if the context resource is not a valid context.
+   */
+  private String getContextRootPath(Resource contextResource) {
+    String[] contextPathParts = StringUtils.split(Path.getOriginalPath(contextResource.getPath(), resolver), "/");
     int siteRootLevelContextPath = urlHandlerConfig.getSiteRootLevel(contextResource);
-    int siteRootLevelPath = urlHandlerConfig.getSiteRootLevel(resource);
     if ((contextPathParts.length <= siteRootLevelContextPath)
-        || (pathParts.length <= siteRootLevelPath)
-        || !StringUtils.equals(contextPathParts[0], "content")
+        || !StringUtils.equals(contextPathParts[0], "content")) {
+      return null;
+    }
+    StringBuilder contextRootPath = new StringBuilder();
+    for (int i = 0; i <= siteRootLevelContextPath; i++) {
+      contextRootPath.append('/').append(contextPathParts[i]);
+    }
+    return contextRootPath.toString();
+  }
+
+  /**
+   * Rewrites the path of the resource to the given context site root path.
+   */
+  private String rewritePathToContextRootPath(Resource resource, String contextRootPath) {
+    if (contextRootPath == null) {
+      return resource.getPath();
+    }
+
+    // check if path is valid - return unchanged path if not
+    String[] pathParts = StringUtils.split(Path.getOriginalPath(resource.getPath(), resolver), "/");
+    int siteRootLevelPath = urlHandlerConfig.getSiteRootLevel(resource);
+    if ((pathParts.length <= siteRootLevelPath)
         || !StringUtils.equals(pathParts[0], "content")) {
       return resource.getPath();
     }
 
     // rewrite path to current context
-    StringBuilder rewrittenPath = new StringBuilder();
-    for (int i = 0; i <= siteRootLevelContextPath; i++) {
-      rewrittenPath.append('/').append(contextPathParts[i]);
-    }
+    StringBuilder rewrittenPath = new StringBuilder(contextRootPath);
     for (int i = siteRootLevelPath + 1; i < pathParts.length; i++) {
       rewrittenPath.append('/').append(pathParts[i]);
     }
     return rewrittenPath.toString();
   }
 
+  /**
+   * Caches context site root paths and rewritten paths for the duration of a request.
+   */
+  private static final class RewritePathToContextCache {
+
+    private final Map<List<Object>, Optional<String>> contextRootPaths = new HashMap<>();
+    private final Map<List<Object>, String> rewrittenPaths = new HashMap<>();
+
+  }
+
   String externalizeLinkUrl(final String url, final Page targetPage, final UrlMode urlMode) {
 
     // check for empty url
@@ -145,7 +195,7 @@ public final class UrlHandlerImpl implements UrlHandler {
     }
 
     // apply sling mapping, namespace mangling and add webapp context path if required
-    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request);
+    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request, slingMappingCache);
 
     // add link URL prefix (scheme/hostname or integrator placeholder) if required
     String linkUrlPrefix = getLinkUrlPrefix(urlMode, targetPage);
@@ -179,7 +229,7 @@ public final class UrlHandlerImpl implements UrlHandler {
     }
 
     // apply sling mapping when externalizing URLs
-    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request);
+    String externalizedUrl = Externalizer.externalizeUrl(url, resolver, request, slingMappingCache);
 
     // add resource URL prefix (scheme/hostname or integrator placeholder) if required
     String resourceUrlPrefix = getResourceUrlPrefix(urlMode, resource);
@@ -198,43 +248,157 @@ public final class UrlHandlerImpl implements UrlHandler {
     if (StringUtils.isBlank(path)) {
       return null;
     }
+    StringBuilder url = new StringBuilder(estimateLength(path, selector, extension, suffix));
+    appendPathParts(url, path, selector, extension, suffix);
+    return url.toString();
+  }
 
-    // Extension url part
-    StringBuilder extensionPart = new StringBuilder();
-    if (StringUtils.isNotBlank(extension)) {
-      extensionPart.append('.').append(extension);
+  /**
+   * Builds the URL from all given parts in a single pass and appends it to the given string builder.
+   * @param url String builder to append the URL to
+   * @param path Path
+   * @param selector Selector string
+   * @param extension Extension
+   * @param suffix Suffix
+   * @param queryString Query string
+   * @param inheritableParameterNames Names of query parameters to inherit from current request
+   * @param fragment Fragment
+   * @return false if no URL was appended because the path is blank
+   */
+  boolean buildUrl(StringBuilder url, String path, String selector, String extension, String suffix, //NOPMD
+      String queryString, Set<String> inheritableParameterNames, String fragment) {
+    if (StringUtils.isBlank(path)) {
+      return false;
+    }
+    int start = url.length();
+    appendPathParts(url, path, selector, extension, suffix);
+    boolean applyQueryString = StringUtils.isNotEmpty(queryString) || inheritableParameterNames != null;
+    boolean applyFragment = StringUtils.isNotEmpty(fragment);
+    if (!applyQueryString && !applyFragment) {
+      return true;
     }
 
+    // path parts already contain query string or fragment - merge them using string operations
+    if (containsQueryOrFragment(url, start)) {
+      String result = url.substring(start);
+      if (applyQueryString) {
+        result = appendQueryString(result, queryString, inheritableParameterNames);
+      }
+      if (applyFragment) {
+        result = setFragment(result, fragment);
+      }
+      url.setLength(start);
+      url.append(result);
+      return true;
+    }
+
+    if (applyQueryString) {
+      appendQueryParams(url, queryString, inheritableParameterNames);
+    }
+    if (applyFragment) {
+      // strip off anchor that may be part of the query string
+      int fragmentPos = url.indexOf("#", start);
+      if (fragmentPos >= 0) {
+        url.setLength(fragmentPos);
+      }
+      // prepend "#" for anchor if not present
+      if (StringUtils.isNotBlank(fragment)) {
+        if (fragment.charAt(0) != '#') {
+          url.append('#');
+        }
+        url.append(fragment);
+      }
+    }
+    return true;
+  }
+
+  static int estimateLength(String path, String selector, String extension, String suffix) {
+    return StringUtils.length(path) + StringUtils.length(selector) + StringUtils.length(extension) * 2
+        + StringUtils.length(suffix) + UrlHandler.SELECTOR_SUFFIX.length() + 8;
+  }
+
+  private static void appendPathParts(StringBuilder url, String path, String selector, String extension, String suffix) {
+    boolean hasExtension = StringUtils.isNotBlank(extension);
+    boolean hasSuffix = StringUtils.isNotBlank(suffix);
+
+    url.append(path);
+
     // Selector url part
-    StringBuilder selectorPart = new StringBuilder();
     if (StringUtils.isNotBlank(selector)) {
       // prepend delimiter to selector if required
-      if (!StringUtils.startsWith(selector, ".")) {
-        selectorPart.append('.');
+      if (selector.charAt(0) != '.') {
+        url.append('.');
       }
-      selectorPart.append(selector);
+      url.append(selector);
+    }
+
+    // add a ".suffix" selector to avoid overlapping of filenames between suffixed and non-suffixed versions of the same page in the dispatcher cache
+    if (hasSuffix) {
+      url.append('.').append(UrlHandler.SELECTOR_SUFFIX);
+    }
+
+    // Extension url part
+    if (hasExtension) {
+      url.append('.').append(extension);
     }
 
     // Suffix part
-    StringBuilder suffixPart = new StringBuilder();
-    if (StringUtils.isNotBlank(suffix)) {
+    if (hasSuffix) {
       // prepend delimiter to suffix if required and add extension
-      if (!StringUtils.startsWith(suffix, "/")) {
-        suffixPart = suffixPart.append("/");
+      if (suffix.charAt(0) != '/') {
+        url.append('/');
       }
-      suffixPart.append(suffix);
+      url.append(suffix);
 
       // if suffix does not contain a file extension add main file extension
-      if (!StringUtils.contains(suffix, ".")) {
-        suffixPart.append(extensionPart);
+      if (hasExtension && suffix.indexOf('.') < 0) {
+        url.append('.').append(extension);
       }
+    }
+  }
 
-      // add a ".suffix" selector to avoid overlapping of filenames between suffixed and non-suffixed versions of the same page in the dispatcher cache
-      selectorPart.append('.').append(UrlHandler.SELECTOR_SUFFIX);
+  private static boolean containsQueryOrFragment(StringBuilder url, int start) {
+    for (int i = start; i < url.length(); i++) {
+      char c = url.charAt(i);
+      if (c == '?' || c == '#') {
+        return true;
+      }
     }
+    return false;
+  }
+
+  /**
+   * Appends query string and inherited query parameters to an URL that does not contain a query string yet.
+   */
+  private void appendQueryParams(StringBuilder url, String queryString, Set<String> inheritableParameterNames) {
+    int queryStart = url.length() + 1;
+    boolean hasParams = false;
 
-    // build externalized url
-    return path + selectorPart.toString() + extensionPart.toString() + suffixPart.toString();
+    // append new query parameters
+    if (StringUtils.isNotBlank(queryString)) {
+      url.append('?').append(queryString);
+      hasParams = true;
+    }
+
+    // inherit query parameters from current request (only if the parameter is not already included in the params list)
+    if (inheritableParameterNames != null && request != null) {
+      for (String parameterName : inheritableParameterNames) {
+        if (!hasParams || url.indexOf(parameterName + "=", queryStart) == -1) {
+          String[] values = RequestParam.getMultiple(request, parameterName);
+          if (values != null) {
+            for (String value : values) {
+              if (StringUtils.isNotEmpty(value)) {
+                url.append(hasParams ? '&' : '?');
+                url.append(parameterName);
+                url.append('=');
+                url.append(value);
+                hasParams = true;
+              }
+            }
+          }
+        }
+      }
+    }
   }
 
   String appendQueryString(String url, String queryString, Set<String> inheritableParameterNames) {
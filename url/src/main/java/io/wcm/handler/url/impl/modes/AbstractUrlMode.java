@@ -19,12 +19,18 @@
  */
 package io.wcm.handler.url.impl.modes;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 
 import com.day.cq.wcm.api.Page;
 
 import io.wcm.handler.url.UrlMode;
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+import io.wcm.sling.commons.adapter.AdaptTo;
+import io.wcm.wcm.commons.util.Path;
 
 abstract class AbstractUrlMode implements UrlMode {
 
@@ -67,14 +73,74 @@ abstract class AbstractUrlMode implements UrlMode {
    * @return Url config (never null)
    */
   protected UrlConfig getUrlConfigForTarget(Adaptable adaptable, Resource targetResource) {
+    UrlConfigRequestCache cache = UrlConfigRequestCache.get(adaptable);
     UrlConfig config = null;
     if (targetResource != null) {
-      config = new UrlConfig(targetResource);
+      config = getUrlConfig(targetResource, targetResource, cache);
     }
     if (config == null || !config.isValid()) {
-      config = new UrlConfig(adaptable);
+      config = getUrlConfig(getContextResource(adaptable), adaptable, cache);
     }
     return config;
   }
 
+  /**
+   * Get URL configuration for the given context resource - reused for all resources with the same
+   * site root within the current request.
+   * @param contextResource Context resource the URL configuration is read from (may be null)
+   * @param configAdaptable Adaptable to read the URL configuration from
+   * @param cache Request cache (may be null)
+   * @return Url config (never null)
+   */
+  protected static UrlConfig getUrlConfig(Resource contextResource, Adaptable configAdaptable,
+      UrlConfigRequestCache cache) {
+    if (cache != null && contextResource != null) {
+      String siteRootPath = getSiteRootPath(contextResource);
+      if (StringUtils.isNotEmpty(siteRootPath)) {
+        return cache.getUrlConfig(siteRootPath, () -> new UrlConfig(configAdaptable));
+      }
+    }
+    return new UrlConfig(configAdaptable);
+  }
+
+  /**
+   * Gets the site root path of the given resource using the site root level of its own URL handler configuration.
+   * With the default URL handler configuration this is the inner-most context-aware configuration context path,
+   * detected once per resource path by the site root detector.
+   * @param resource Resource
+   * @return Site root path. The path is not checked for validness.
+   */
+  protected static String getSiteRootPath(Resource resource) {
+    UrlHandlerConfig urlHandlerConfig = AdaptTo.notNull(resource, UrlHandlerConfig.class);
+    return getRootPath(resource.getPath(), urlHandlerConfig.getSiteRootLevel(resource), resource.getResourceResolver());
+  }
+
+  private static Resource getContextResource(Adaptable adaptable) {
+    if (adaptable instanceof Resource) {
+      return (Resource)adaptable;
+    }
+    else if (adaptable instanceof SlingHttpServletRequest) {
+      return ((SlingHttpServletRequest)adaptable).getResource();
+    }
+    return null;
+  }
+
+  /**
+   * Gets site root level path of a site.
+   * @param path Path of page within the site
+   * @param rootLevel Level of root page
+   * @param resourceResolver Resource resolver
+   * @return Site root path for the site. The path is not checked for validness.
+   */
+  protected static String getRootPath(String path, int rootLevel, ResourceResolver resourceResolver) {
+    String rootPath = Path.getAbsoluteParent(path, rootLevel, resourceResolver);
+
+    // strip off everything after first "." - root path may be passed with selectors/extension which is not relevant
+    if (StringUtils.contains(rootPath, ".")) {
+      rootPath = StringUtils.substringBefore(rootPath, ".");
+    }
+
+    return rootPath;
+  }
+
 }
@@ -34,7 +34,6 @@ import io.wcm.handler.url.UrlModes;
 import io.wcm.handler.url.integrator.IntegratorHandler;
 import io.wcm.handler.url.spi.UrlHandlerConfig;
 import io.wcm.sling.commons.adapter.AdaptTo;
-import io.wcm.wcm.commons.util.Path;
 
 /**
  * Default mode: Does generate a full externalized URL only if both siteUrl and siteUrlSecure parameter
@@ -89,6 +88,15 @@ public final class DefaultUrlMode extends AbstractUrlMode {
     boolean notInCurrentSite = !StringUtils.equals(currentSiteRoot, pathSiteRoot);
 
     if (notInCurrentSite) {
+      // decision depends only on the current site root and the URL configuration of the target site root
+      UrlConfigRequestCache cache = UrlConfigRequestCache.get(adaptable);
+      if (cache != null && StringUtils.isNotEmpty(currentSiteRoot)) {
+        String targetSiteRoot = getSiteRootPath(targetResource);
+        if (StringUtils.isNotEmpty(targetSiteRoot)) {
+          return cache.isOtherDomain(currentSiteRoot, targetSiteRoot,
+              () -> getUrlConfig(targetResource, targetResource, cache).isValid());
+        }
+      }
       UrlConfig targetUrlConfig = new UrlConfig(targetResource);
       return targetUrlConfig.isValid();
     }
@@ -97,22 +105,4 @@ public final class DefaultUrlMode extends AbstractUrlMode {
     }
   }
 
-  /**
-   * Gets site root level path of a site.
-   * @param path Path of page within the site
-   * @param rootLevel Level of root page
-   * @param resourceResolver Resource resolver
-   * @return Site root path for the site. The path is not checked for validness.
-   */
-  private String getRootPath(String path, int rootLevel, ResourceResolver resourceResolver) {
-    String rootPath = Path.getAbsoluteParent(path, rootLevel, resourceResolver);
-
-    // strip off everything after first "." - root path may be passed with selectors/extension which is not relevant
-    if (StringUtils.contains(rootPath, ".")) {
-      rootPath = StringUtils.substringBefore(rootPath, ".");
-    }
-
-    return rootPath;
-  }
-
 }
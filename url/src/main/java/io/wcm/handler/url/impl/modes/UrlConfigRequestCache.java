@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl.modes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.adapter.Adaptable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.wcm.handler.url.impl.RequestAttributeCache;
+
+/**
+ * Caches URL configurations per site root path and the decision whether links from one site root
+ * to another site root point to another domain. The cache is stored as request attribute and
+ * lives only for the duration of the request.
+ */
+final class UrlConfigRequestCache {
+
+  private final Map<String, UrlConfig> urlConfigs = new HashMap<>();
+  private final Map<String, Boolean> otherDomainDecisions = new HashMap<>();
+
+  /**
+   * Get URL config cache for the current request.
+   * @param adaptable Adaptable
+   * @return Cache instance or null if adaptable is not a request
+   */
+  static @Nullable UrlConfigRequestCache get(@NotNull Adaptable adaptable) {
+    if (!(adaptable instanceof SlingHttpServletRequest)) {
+      return null;
+    }
+    return RequestAttributeCache.get((SlingHttpServletRequest)adaptable, UrlConfigRequestCache.class, UrlConfigRequestCache::new);
+  }
+
+  /**
+   * @param siteRootPath Site root path
+   * @param urlConfigSupplier Creates URL config if not cached yet
+   * @return URL config
+   */
+  UrlConfig getUrlConfig(@NotNull String siteRootPath, @NotNull Supplier<UrlConfig> urlConfigSupplier) {
+    return urlConfigs.computeIfAbsent(siteRootPath, key -> urlConfigSupplier.get());
+  }
+
+  /**
+   * @param currentSiteRootPath Site root path of current page
+   * @param targetSiteRootPath Site root path of link target
+   * @param decisionSupplier Computes the decision if not cached yet
+   * @return true if the link target is located in another domain
+   */
+  boolean isOtherDomain(@NotNull String currentSiteRootPath, @NotNull String targetSiteRootPath,
+      @NotNull BooleanSupplier decisionSupplier) {
+    return otherDomainDecisions.computeIfAbsent(currentSiteRootPath + "|" + targetSiteRootPath,
+        key -> decisionSupplier.getAsBoolean());
+  }
+
+}
@@ -19,7 +19,11 @@
  */
 package io.wcm.handler.url.integrator.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 
@@ -36,6 +40,7 @@ import org.jetbrains.annotations.Nullable;
 
 import com.day.cq.wcm.api.Page;
 
+import io.wcm.handler.url.impl.RequestAttributeCache;
 import io.wcm.handler.url.integrator.IntegratorHandler;
 import io.wcm.handler.url.integrator.IntegratorMode;
 import io.wcm.handler.url.integrator.IntegratorNameConstants;
@@ -112,7 +117,7 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
    */
   @Override
   public @NotNull String getIntegratorTemplateSelector() {
-    if (currentPage != null && urlHandlerConfig.isIntegrator(currentPage)) {
+    if (currentPage != null && getIntegratorSettings(currentPage).integrator) {
       if (isResourceUrlSecure(currentPage)) {
         return SELECTOR_INTEGRATORTEMPLATE_SECURE;
       }
@@ -138,9 +143,32 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
   }
 
   @Override
+  @SuppressWarnings("null")
   public @NotNull IntegratorMode getIntegratorMode(@Nullable Page page) {
+    return getIntegratorSettings(page).mode;
+  }
+
+  /**
+   * Get integrator settings for the given page. Within a request the settings are detected only once per page.
+   * @param page Page or null
+   * @return Integrator settings
+   */
+  private IntegratorSettings getIntegratorSettings(@Nullable Page page) {
+    IntegratorSettingsCache cache = RequestAttributeCache.get(request, IntegratorSettingsCache.class, IntegratorSettingsCache::new);
+    if (cache == null) {
+      return detectIntegratorSettings(page);
+    }
+    // integrator modes and template detection depend on the URL handler config of the context
+    List<Object> key = Arrays.asList(urlHandlerConfig, page != null ? page.getPath() : "");
+    return cache.settings.computeIfAbsent(key, k -> detectIntegratorSettings(page));
+  }
+
+  private IntegratorSettings detectIntegratorSettings(@Nullable Page page) {
     ValueMap props = getPagePropertiesNullSafe(page);
-    return getIntegratorMode(props);
+    return new IntegratorSettings(
+        page != null && urlHandlerConfig.isIntegrator(page),
+        getIntegratorMode(props),
+        getIntegratorProtocol(props));
   }
 
 
@@ -194,10 +222,9 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
    * @return true if resource URLs should be rendered in secure mode
    */
   private boolean isResourceUrlSecure(Page page) {
-    ValueMap props = getPagePropertiesNullSafe(page);
-    IntegratorMode mode = getIntegratorMode(props);
-    if (mode.isDetectProtocol()) {
-      IntegratorProtocol integratorProtocol = getIntegratorProtocol(props);
+    IntegratorSettings settings = getIntegratorSettings(page);
+    if (settings.mode.isDetectProtocol()) {
+      IntegratorProtocol integratorProtocol = settings.protocol;
       if (integratorProtocol == IntegratorProtocol.HTTPS) {
         return true;
       }
@@ -223,4 +250,30 @@ public final class IntegratorHandlerImpl implements IntegratorHandler {
     }
   }
 
+  /**
+   * Integrator settings detected from page properties.
+   */
+  private static final class IntegratorSettings {
+
+    private final boolean integrator;
+    private final IntegratorMode mode;
+    private final IntegratorProtocol protocol;
+
+    IntegratorSettings(boolean integrator, IntegratorMode mode, IntegratorProtocol protocol) {
+      this.integrator = integrator;
+      this.mode = mode;
+      this.protocol = protocol;
+    }
+
+  }
+
+  /**
+   * Caches integrator settings per URL handler config and page path within a request.
+   */
+  private static final class IntegratorSettingsCache {
+
+    private final Map<List<Object>, IntegratorSettings> settings = new HashMap<>();
+
+  }
+
 }
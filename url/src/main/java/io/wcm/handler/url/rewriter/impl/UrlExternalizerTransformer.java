@@ -21,6 +21,8 @@ package io.wcm.handler.url.rewriter.impl;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.cocoon.xml.sax.AbstractSAXPipe;
 import org.apache.cocoon.xml.sax.AttributesImpl;
@@ -35,21 +37,38 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 import io.wcm.handler.url.UrlHandler;
+import io.wcm.handler.url.impl.Externalizer;
 
 /**
  * HTML transformer that rewrites URLs in certain HTML element attributes.
  */
 class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer {
 
+  static final int MAX_REWRITTEN_URLS = 1000;
+
+  private final UrlExternalizerTransformerFactory factory;
   private UrlExternalizerTransformerConfig transformerConfig;
   private UrlHandler urlHandler;
 
+  // rewritten URL per attribute value, limited to the most recently used entries
+  private final Map<String, String> rewrittenUrls = new LinkedHashMap<String, String>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > MAX_REWRITTEN_URLS;
+    }
+  };
+
   private static final Logger log = LoggerFactory.getLogger(UrlExternalizerTransformer.class.getName());
 
+  UrlExternalizerTransformer(UrlExternalizerTransformerFactory factory) {
+    this.factory = factory;
+  }
+
   @Override
   public void init(ProcessingContext pipelineContext, ProcessingComponentConfiguration config) {
     log.trace("Initialize UrlExternalizerTransformer with config: {}", config.getConfiguration());
-    transformerConfig = new UrlExternalizerTransformerConfig(config.getConfiguration());
+    transformerConfig = factory.getTransformerConfig(config.getConfiguration());
     urlHandler = pipelineContext.getRequest().adaptTo(UrlHandler.class);
   }
 
@@ -57,7 +76,7 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
   public void startElement(String nsUri, String name, String raw, Attributes attrs) throws SAXException {
 
     // check if for this element an attribute for rewriting is configured
-    String rewriteAttr = transformerConfig.getElementAttributeNames().get(name);
+    String rewriteAttr = transformerConfig.getRewriteAttributeName(name);
     if (rewriteAttr == null) {
       log.trace("Rewrite element {}: Skip - No rewrite attribute configured.", name);
       super.startElement(nsUri, name, raw, attrs);
@@ -87,6 +106,44 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
       return;
     }
 
+    // do not rewrite URLs that are already externalized
+    if (Externalizer.isExternalized(url)) {
+      log.debug("Rewrite element {}: Skip - URL is already externalized: {}", name, url);
+      super.startElement(nsUri, name, raw, attrs);
+      return;
+    }
+
+    // the same URLs are rewritten many times within the same page - reuse rewrite result
+    String rewrittenUrl;
+    if (rewrittenUrls.containsKey(url)) {
+      rewrittenUrl = rewrittenUrls.get(url);
+    }
+    else {
+      rewrittenUrl = rewriteUrl(url);
+      rewrittenUrls.put(url, rewrittenUrl);
+    }
+
+    if (StringUtils.equals(url, rewrittenUrl)) {
+      log.debug("Rewrite element {}: Skip - URL is already externalized: {}", name, url);
+      super.startElement(nsUri, name, raw, attrs);
+      return;
+    }
+
+    // set new attribute value
+    log.debug("Rewrite element {}: Rewrite URL {} to {}", name, url, rewrittenUrl);
+    AttributesImpl newAttrs = new AttributesImpl(attrs);
+    newAttrs.setValue(attributeIndex, rewrittenUrl);
+    super.startElement(nsUri, name, raw, newAttrs);
+  }
+
+  /**
+   * Externalizes the given URL.
+   * @param attributeValue URL from attribute value
+   * @return Rewritten URL, or the unchanged attribute value if the URL is already externalized
+   */
+  private String rewriteUrl(String attributeValue) {
+    String url = attributeValue;
+
     // split off query string or fragment that may be appended to the URL
     String urlRemainder = null;
     int urlRemainderPos = StringUtils.indexOfAny(url, '?', '#');
@@ -115,21 +172,14 @@ class UrlExternalizerTransformer extends AbstractSAXPipe implements Transformer
     }
 
     if (StringUtils.equals(url, rewrittenUrl)) {
-      log.debug("Rewrite element {}: Skip - URL is already externalized: {}", name, url);
-      super.startElement(nsUri, name, raw, attrs);
-      return;
+      return attributeValue;
     }
-
-    // set new attribute value
-    log.debug("Rewrite element {}: Rewrite URL {} to {}", name, url, rewrittenUrl);
-    AttributesImpl newAttrs = new AttributesImpl(attrs);
-    newAttrs.setValue(attributeIndex, rewrittenUrl);
-    super.startElement(nsUri, name, raw, newAttrs);
+    return rewrittenUrl;
   }
 
   @Override
   public void dispose() {
-    // nothing to do
+    rewrittenUrls.clear();
   }
 
 }
@@ -19,6 +19,13 @@
  */
 package io.wcm.handler.url.rewriter.impl;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.rewriter.Transformer;
 import org.apache.sling.rewriter.TransformerFactory;
 import org.osgi.service.component.annotations.Component;
@@ -31,9 +38,23 @@ import org.osgi.service.component.annotations.Component;
 })
 public class UrlExternalizerTransformerFactory implements TransformerFactory {
 
+  // parsed transformer configuration per rewrite elements configuration of the rewriter pipeline
+  private final ConcurrentMap<List<String>, UrlExternalizerTransformerConfig> transformerConfigs = new ConcurrentHashMap<>();
+
   @Override
   public Transformer createTransformer() {
-    return new UrlExternalizerTransformer();
+    return new UrlExternalizerTransformer(this);
+  }
+
+  /**
+   * Gets the parsed transformer configuration. The configuration is parsed only once per pipeline configuration.
+   * @param config Transformer configuration from rewriter pipeline
+   * @return Transformer configuration
+   */
+  UrlExternalizerTransformerConfig getTransformerConfig(ValueMap config) {
+    String[] rewriteElements = config.get(UrlExternalizerTransformerConfig.PN_REWRITE_ELEMENTS, String[].class);
+    List<String> key = rewriteElements != null ? Arrays.asList(rewriteElements) : Collections.emptyList();
+    return transformerConfigs.computeIfAbsent(key, k -> new UrlExternalizerTransformerConfig(config));
   }
 
 }
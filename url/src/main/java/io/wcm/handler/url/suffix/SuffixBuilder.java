@@ -20,26 +20,21 @@
 package io.wcm.handler.url.suffix;
 
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.SUFFIX_PART_DELIMITER;
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeKeyValuePart;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeResourcePathPart;
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.getRelativePath;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Predicate;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 import org.jetbrains.annotations.NotNull;
@@ -219,7 +214,7 @@ public final class SuffixBuilder {
     return this;
   }
 
-  private void validateValueType(Object value) {
+  static void validateValueType(Object value) {
     Class clazz = value.getClass();
     boolean isValid = (clazz == String.class
         || clazz == Boolean.class
@@ -292,6 +287,16 @@ public final class SuffixBuilder {
    * @return the suffix
    */
   public @NotNull String build() {
+    return toTemplate().build();
+  }
+
+  /**
+   * Build an immutable suffix template from the current state of this builder. The parts kept from the current
+   * request and the key-value pairs and resources added to this builder are encoded only once, the template can
+   * then be used to build many suffixes that differ only in a single key-value pair.
+   * @return the suffix template
+   */
+  public @NotNull SuffixTemplate toTemplate() {
     SortedMap<String, Object> sortedParameterMap = new TreeMap<>(parameterMap);
 
     // gather resource paths in a treeset (having them in a defined order helps with caching)
@@ -322,28 +327,8 @@ public final class SuffixBuilder {
       resourcePathsSet.addAll(ImmutableList.copyOf(resourcePaths));
     }
 
-    // gather all suffix parts in this list
-    List<String> suffixParts = new ArrayList<>();
-
-    // now encode all resource paths
-    for (String path : resourcePathsSet) {
-      suffixParts.add(encodeResourcePathPart(path));
-    }
-
-    // now encode all entries from the parameter map
-    for (Entry<String, Object> entry : sortedParameterMap.entrySet()) {
-      Object value = entry.getValue();
-      if (value == null) {
-        // don't add suffix part if value is null
-        continue;
-      }
-      String encodedKey = encodeKeyValuePart(entry.getKey());
-      String encodedValue = encodeKeyValuePart(value.toString());
-      suffixParts.add(encodedKey + KEY_VALUE_DELIMITER + encodedValue);
-    }
-
-    // finally join these parts to a single string
-    return StringUtils.join(suffixParts, SUFFIX_PART_DELIMITER);
+    // resource paths and key-value pairs are encoded by the template
+    return new SuffixTemplate(resourcePathsSet, sortedParameterMap);
   }
 
 }
@@ -19,20 +19,18 @@
  */
 package io.wcm.handler.url.suffix;
 
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
-import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.splitSuffix;
-
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.osgi.annotation.versioning.ProviderType;
@@ -42,6 +40,7 @@ import com.day.cq.wcm.api.PageManager;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 
+import io.wcm.handler.url.suffix.impl.ParsedSuffix;
 import io.wcm.sling.commons.adapter.AdaptTo;
 
 /**
@@ -51,6 +50,7 @@ import io.wcm.sling.commons.adapter.AdaptTo;
 public final class SuffixParser {
 
   private final SlingHttpServletRequest request;
+  private ParsedSuffix parsedSuffix;
 
   /**
    * Create a {@link SuffixParser} with the default {@link SuffixStateKeepingStrategy} (which discards all existing
@@ -169,16 +169,18 @@ public final class SuffixParser {
    * @return the value of that named parameter (or null if not used)
    */
   private String findSuffixPartByKey(String key) {
-    for (String part : splitSuffix(request.getRequestPathInfo().getSuffix())) {
-      if (part.indexOf(KEY_VALUE_DELIMITER) >= 0) {
-        String partKey = decodeKey(part);
-        if (partKey.equals(key)) {
-          String value = decodeValue(part);
-          return value;
-        }
-      }
+    return getParsedSuffix().getValue(key);
+  }
+
+  /**
+   * Suffix is split and decoded only once per parser (and request).
+   * @return Parsed suffix
+   */
+  private ParsedSuffix getParsedSuffix() {
+    if (parsedSuffix == null) {
+      parsedSuffix = ParsedSuffix.get(request);
     }
-    return null;
+    return parsedSuffix;
   }
 
   /**
@@ -216,13 +218,10 @@ public final class SuffixParser {
    * @return the first {@link Resource} or null
    */
   public @Nullable Resource getResource(@Nullable Predicate<Resource> filter, @Nullable Resource baseResource) {
-    List<Resource> suffixResources = getResources(filter, baseResource);
-    if (suffixResources.isEmpty()) {
-      return null;
-    }
-    else {
-      return suffixResources.get(0);
-    }
+    // resolve suffix paths only until first matching resource is found
+    return streamResourcesWithBaseResource(filter, getBaseResource(baseResource))
+        .findFirst()
+        .orElse(null);
   }
 
   /**
@@ -257,22 +256,29 @@ public final class SuffixParser {
    * @param baseResource the suffix path is relative to this resource path (null for current page's jcr:content node)
    * @return a list containing the Resources
    */
-  @SuppressWarnings("null")
   public @NotNull List<Resource> getResources(@Nullable Predicate<Resource> filter, @Nullable Resource baseResource) {
+    return streamResourcesWithBaseResource(filter, getBaseResource(baseResource))
+        .collect(Collectors.toList());
+  }
 
-    // resolve base path or fallback to current page's content if not specified
-    Resource baseResourceToUse = baseResource;
-    if (baseResourceToUse == null) {
-      PageManager pageManager = request.getResourceResolver().adaptTo(PageManager.class);
-      Page currentPage = pageManager.getContainingPage(request.getResource());
-      if (currentPage != null) {
-        baseResourceToUse = currentPage.getContentResource();
-      }
-      else {
-        baseResourceToUse = request.getResource();
-      }
+  /**
+   * Resolve base path or fallback to current page's content if not specified.
+   * @param baseResource Base resource or null
+   * @return Base resource to use
+   */
+  @SuppressWarnings("null")
+  private Resource getBaseResource(@Nullable Resource baseResource) {
+    if (baseResource != null) {
+      return baseResource;
+    }
+    PageManager pageManager = request.getResourceResolver().adaptTo(PageManager.class);
+    Page currentPage = pageManager.getContainingPage(request.getResource());
+    if (currentPage != null) {
+      return currentPage.getContentResource();
+    }
+    else {
+      return request.getResource();
     }
-    return getResourcesWithBaseResource(filter, baseResourceToUse);
   }
 
   /**
@@ -309,14 +315,13 @@ public final class SuffixParser {
    * @param basePage the suffix path is relative to this page path (null for current page)
    * @return the first {@link Page} or null
    */
+  @SuppressWarnings("null")
   public @Nullable Page getPage(@Nullable Predicate<Page> filter, @Nullable Page basePage) {
-    List<Page> suffixPages = getPages(filter, basePage);
-    if (suffixPages.isEmpty()) {
-      return null;
-    }
-    else {
-      return suffixPages.get(0);
-    }
+    // resolve suffix paths only until first matching page is found
+    return streamResourcesWithBaseResource(getPageResourceFilter(filter), getBasePageResource(basePage))
+        .findFirst()
+        .map(resource -> resource.adaptTo(Page.class))
+        .orElse(null);
   }
 
   /**
@@ -345,22 +350,45 @@ public final class SuffixParser {
    * @return a list containing the Pages
    */
   public @NotNull List<Page> getPages(@Nullable final Predicate<Page> filter, @Nullable final Page basePage) {
-    Resource baseResourceToUse = null;
+    List<Resource> resources = streamResourcesWithBaseResource(getPageResourceFilter(filter), getBasePageResource(basePage))
+        .collect(Collectors.toList());
+
+    // convert resources back to pages
+    return Lists.transform(resources, new Function<Resource, Page>() {
+      @Override
+      @SuppressWarnings("null")
+      public Page apply(@Nullable Resource resource) {
+        return resource.adaptTo(Page.class);
+      }
+    });
+  }
 
-    // detect pages page to use
+  /**
+   * Detect base page resource to use, fallback to current page if not specified.
+   * @param basePage Base page or null
+   * @return Base page resource or null
+   */
+  private @Nullable Resource getBasePageResource(@Nullable Page basePage) {
     if (basePage == null) {
       PageManager pageManager = AdaptTo.notNull(request.getResourceResolver(), PageManager.class);
       Page currentPage = pageManager.getContainingPage(request.getResource());
       if (currentPage != null) {
-        baseResourceToUse = currentPage.adaptTo(Resource.class);
+        return currentPage.adaptTo(Resource.class);
       }
+      return null;
     }
     else {
-      baseResourceToUse = basePage.adaptTo(Resource.class);
+      return basePage.adaptTo(Resource.class);
     }
+  }
 
-    // filter pages (as resources)
-    Predicate<Resource> resourceFilter = new Predicate<Resource>() {
+  /**
+   * Filter pages (as resources).
+   * @param filter Page filter or null
+   * @return Resource filter
+   */
+  private static @NotNull Predicate<Resource> getPageResourceFilter(@Nullable Predicate<Page> filter) {
+    return new Predicate<Resource>() {
       @Override
       public boolean test(Resource resource) {
         Page page = resource.adaptTo(Page.class);
@@ -373,48 +401,29 @@ public final class SuffixParser {
         return filter.test(page);
       }
     };
-    List<Resource> resources = getResourcesWithBaseResource(resourceFilter, baseResourceToUse);
-
-    // convert resources back to pages
-    return Lists.transform(resources, new Function<Resource, Page>() {
-      @Override
-      @SuppressWarnings("null")
-      public Page apply(@Nullable Resource resource) {
-        return resource.adaptTo(Page.class);
-      }
-    });
   }
 
-  private @NotNull List<Resource> getResourcesWithBaseResource(@Nullable Predicate<Resource> filter, @Nullable Resource baseResource) {
-    // split the suffix to extract the paths of the selected components
-    String[] suffixParts = splitSuffix(request.getRequestPathInfo().getSuffix());
-
-    // iterate over all parts and gather those resources
-    List<Resource> selectedResources = new ArrayList<>();
-    for (String path : suffixParts) {
-
-      // if path contains the key/value-delimiter then don't try to resolve it as a content path
-      if (StringUtils.contains(path, KEY_VALUE_DELIMITER)) {
-        continue;
-      }
-
-      String decodedPath = decodeResourcePathPart(path);
-
-      // lookup the resource specified by the path (which is relative to the current page's content resource)
-      Resource resource = request.getResourceResolver().getResource(baseResource, decodedPath);
-      if (resource == null) {
+  /**
+   * Resolves the resource paths from the suffix lazily: each path is looked up only when the stream
+   * is consumed up to it, the filter is applied on the fly. Paths contained multiple times in the suffix are looked
+   * up only once, but returned for each occurrence.
+   * @param filter Resource filter or null
+   * @param baseResource Base resource the suffix paths are relative to
+   * @return Stream of existing resources matching the filter, in the order of the suffix
+   */
+  private @NotNull Stream<Resource> streamResourcesWithBaseResource(@Nullable Predicate<Resource> filter,
+      @Nullable Resource baseResource) {
+    ResourceResolver resourceResolver = request.getResourceResolver();
+    Map<String, Optional<Resource>> resolvedResources = new HashMap<>();
+    return getParsedSuffix().getResourcePaths().stream()
+        // lookup the resource specified by the path (which is relative to the current page's content resource)
+        .map(path -> resolvedResources.computeIfAbsent(path,
+            key -> Optional.ofNullable(resourceResolver.getResource(baseResource, key))))
         // no resource found with given path, continue with next path in suffix
-        continue;
-      }
-
-      // if a filter is given - check
-      if (filter == null || filter.test(resource)) {
-        selectedResources.add(resource);
-      }
-
-    }
-
-    return selectedResources;
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        // if a filter is given - check
+        .filter(resource -> filter == null || filter.test(resource));
   }
 
 }
@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.suffix;
+
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.SUFFIX_PART_DELIMITER;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeKeyValuePart;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeResourcePathPart;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.jetbrains.annotations.NotNull;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * Immutable suffix template with pre-encoded resource paths and key-value pairs, created via
+ * {@link SuffixBuilder#toTemplate()}.
+ * Use it when generating many links that share the same suffix state and differ only in a single key-value pair,
+ * e.g. links for facets of a search result page. The suffix state from the current request is filtered, decoded
+ * and re-encoded only once when the template is created.
+ */
+@ProviderType
+public final class SuffixTemplate {
+
+  private final String resourcePathsPart;
+  private final String[] keys;
+  private final String[] keyValueParts;
+  private final int length;
+
+  SuffixTemplate(@NotNull SortedSet<String> resourcePaths, @NotNull SortedMap<String, Object> parameterMap) {
+    StringBuilder resourcePathsBuilder = new StringBuilder();
+    boolean first = true;
+    for (String path : resourcePaths) {
+      first = appendPart(resourcePathsBuilder, encodeResourcePathPart(path), first);
+    }
+    this.resourcePathsPart = resourcePaths.isEmpty() ? null : resourcePathsBuilder.toString();
+
+    int count = 0;
+    for (Object value : parameterMap.values()) {
+      if (value != null) {
+        count++;
+      }
+    }
+    this.keys = new String[count];
+    this.keyValueParts = new String[count];
+    int index = 0;
+    int partsLength = resourcePathsBuilder.length();
+    for (Map.Entry<String, Object> entry : parameterMap.entrySet()) {
+      Object value = entry.getValue();
+      if (value == null) {
+        // don't add suffix part if value is null
+        continue;
+      }
+      keys[index] = entry.getKey();
+      keyValueParts[index] = encodeKeyValue(entry.getKey(), value);
+      partsLength += keyValueParts[index].length() + 1;
+      index++;
+    }
+    this.length = partsLength;
+  }
+
+  /**
+   * Build the suffix from the template without changes.
+   * @return the suffix
+   */
+  public @NotNull String build() {
+    return buildSuffix(-1, null, false);
+  }
+
+  /**
+   * Build the suffix from the template with a key-value pair added or replaced. The template itself is not modified.
+   * @param key the key
+   * @param value the value. Only String, Boolean, Integer, Long are supported. If null the suffix is built unchanged.
+   * @return the suffix
+   */
+  @SuppressWarnings({ "null", "unused" })
+  public @NotNull String with(@NotNull String key, @NotNull Object value) {
+    if (key == null) {
+      throw new IllegalArgumentException("Key must not be null");
+    }
+    if (value == null) {
+      return build();
+    }
+    SuffixBuilder.validateValueType(value);
+
+    // find sorted position of key (same ordering as in SuffixBuilder)
+    int index = 0;
+    while (index < keys.length && keys[index].compareTo(key) < 0) {
+      index++;
+    }
+    boolean replace = index < keys.length && keys[index].equals(key);
+    return buildSuffix(index, encodeKeyValue(key, value), replace);
+  }
+
+  private String buildSuffix(int changedIndex, String changedPart, boolean replace) {
+    StringBuilder suffix = new StringBuilder(length + (changedPart != null ? changedPart.length() + 1 : 0));
+    if (resourcePathsPart != null) {
+      suffix.append(resourcePathsPart);
+    }
+    boolean first = resourcePathsPart == null;
+    for (int i = 0; i <= keys.length; i++) {
+      if (i == changedIndex) {
+        first = appendPart(suffix, changedPart, first);
+        if (replace) {
+          continue;
+        }
+      }
+      if (i < keys.length) {
+        first = appendPart(suffix, keyValueParts[i], first);
+      }
+    }
+    return suffix.toString();
+  }
+
+  private static boolean appendPart(StringBuilder suffix, String part, boolean first) {
+    if (!first) {
+      suffix.append(SUFFIX_PART_DELIMITER);
+    }
+    suffix.append(part);
+    return false;
+  }
+
+  private static String encodeKeyValue(String key, Object value) {
+    return encodeKeyValuePart(key) + KEY_VALUE_DELIMITER + encodeKeyValuePart(value.toString());
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.suffix.impl;
+
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.KEY_VALUE_DELIMITER;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.splitSuffix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import io.wcm.handler.url.impl.RequestAttributeCache;
+
+/**
+ * Suffix split and decoded once into named values and resource path parts.
+ * Parsed suffixes are cached as request attribute per raw suffix string.
+ */
+public final class ParsedSuffix {
+
+  private final Map<String, String> values;
+  private final List<String> resourcePaths;
+
+  ParsedSuffix(@Nullable String suffix) {
+    Map<String, String> parsedValues = new LinkedHashMap<>();
+    List<String> parsedResourcePaths = new ArrayList<>();
+    for (String part : splitSuffix(suffix)) {
+      if (part.indexOf(KEY_VALUE_DELIMITER) >= 0) {
+        // first occurrence of a key wins
+        parsedValues.putIfAbsent(decodeKey(part), decodeValue(part));
+      }
+      else {
+        parsedResourcePaths.add(decodeResourcePathPart(part));
+      }
+    }
+    this.values = Collections.unmodifiableMap(parsedValues);
+    this.resourcePaths = Collections.unmodifiableList(parsedResourcePaths);
+  }
+
+  /**
+   * @param key Key of suffix part
+   * @return Decoded value or null if key is not present in suffix
+   */
+  public @Nullable String getValue(@NotNull String key) {
+    return values.get(key);
+  }
+
+  /**
+   * @return Decoded values of all key/value suffix parts
+   */
+  public @NotNull Map<String, String> getValues() {
+    return values;
+  }
+
+  /**
+   * @return Decoded resource paths in the order they appear in the suffix
+   */
+  public @NotNull List<String> getResourcePaths() {
+    return resourcePaths;
+  }
+
+  /**
+   * Get parsed suffix of the given request. The result is cached for the duration of the request.
+   * @param request Request
+   * @return Parsed suffix
+   */
+  @SuppressWarnings("null")
+  public static @NotNull ParsedSuffix get(@NotNull SlingHttpServletRequest request) {
+    String suffix = StringUtils.defaultString(request.getRequestPathInfo().getSuffix());
+    ParsedSuffixCache cache = RequestAttributeCache.get(request, ParsedSuffixCache.class, ParsedSuffixCache::new);
+    return cache.parsedSuffixes.computeIfAbsent(suffix, ParsedSuffix::new);
+  }
+
+  /**
+   * Caches parsed suffixes per raw suffix string within a request.
+   */
+  private static final class ParsedSuffixCache {
+
+    private final Map<String, ParsedSuffix> parsedSuffixes = new HashMap<>();
+
+  }
+
+}
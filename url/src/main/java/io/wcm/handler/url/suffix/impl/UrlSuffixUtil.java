@@ -23,9 +23,6 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
-import org.apache.commons.lang3.text.translate.EntityArrays;
-import org.apache.commons.lang3.text.translate.LookupTranslator;
 import org.apache.sling.api.resource.Resource;
 
 /**
@@ -54,48 +51,33 @@ public final class UrlSuffixUtil {
   public static final String ESCAPED_SLASH = ESCAPE_DELIMITER + hexCode('/');
 
   /**
-   * Map with special chars and their replacements that are escaped with special ~ and hexcode
-   */
-  private static final String[][] SPECIAL_CHARS_MAPPING = {
-    // escape delimiter chars
-    {
-      Character.toString(SUFFIX_PART_DELIMITER), ESCAPE_DELIMITER + hexCode(SUFFIX_PART_DELIMITER)
-    },
-    {
-      Character.toString(KEY_VALUE_DELIMITER), ESCAPE_DELIMITER + hexCode(KEY_VALUE_DELIMITER)
-    },
-    // '.' must be custom-escaped (if no file extension is added to suffix,
-    // anything after a dot would be interpreted as file extension during parsing)
-    {
-      Character.toString('.'), ESCAPE_DELIMITER + hexCode('.')
-    },
-    // escape '%' to avoid confusion with URL escaping
-    {
-      Character.toString('%'), ESCAPE_DELIMITER + hexCode('%')
-    },
-    // '/' must be custom-escaped (dispatcher/webserver may filter out/misinterpret urls with unescaped slashes)
-    {
-      Character.toString('/'), ESCAPE_DELIMITER + hexCode('/')
-    },
-    // escape ':'
-    {
-      Character.toString(':'), ESCAPE_DELIMITER + hexCode(':')
-    },
-    // escape ' ' as well (singular problem occurred once)
-    {
-      Character.toString(' '), ESCAPE_DELIMITER + hexCode(' ')
-    }
+   * Special chars that are escaped with special ~ and hexcode:
+   * <ul>
+   * <li>delimiter chars '/' and '='</li>
+   * <li>'.' must be custom-escaped (if no file extension is added to suffix,
+   * anything after a dot would be interpreted as file extension during parsing)</li>
+   * <li>'%' to avoid confusion with URL escaping</li>
+   * <li>'/' must be custom-escaped (dispatcher/webserver may filter out/misinterpret urls with unescaped slashes)</li>
+   * <li>':'</li>
+   * <li>' ' as well (singular problem occurred once)</li>
+   * </ul>
+   */
+  private static final char[] SPECIAL_CHARS = {
+      SUFFIX_PART_DELIMITER, KEY_VALUE_DELIMITER, '.', '%', '/', ':', ' '
   };
 
   /**
-   * Escape special chars for suffix.
+   * Lookup table with escaped replacement for each special ASCII char (null if char is not escaped)
    */
-  private static final CharSequenceTranslator ESCAPE_SPECIAL_CHARS = new LookupTranslator(SPECIAL_CHARS_MAPPING);
+  private static final String[] ESCAPE_TABLE = new String[128];
+  static {
+    for (char c : SPECIAL_CHARS) {
+      ESCAPE_TABLE[c] = ESCAPE_DELIMITER + hexCode(c);
+    }
+  }
 
-  /**
-   * Unesacpe special chars in suffix.
-   */
-  private static final CharSequenceTranslator UNESCAPE_SPECIAL_CHARS = new LookupTranslator(EntityArrays.invert(SPECIAL_CHARS_MAPPING));
+  private static final char ESCAPE_DELIMITER_CHAR = ESCAPE_DELIMITER.charAt(0);
+  private static final int ESCAPED_CHAR_LENGTH = 3;
 
   private UrlSuffixUtil() {
     // static methods only
@@ -116,7 +98,7 @@ public final class UrlSuffixUtil {
    * @return Encodes path part
    */
   public static String encodeResourcePathPart(String relativePath) {
-    return ESCAPE_SPECIAL_CHARS.translate(relativePath);
+    return escapeSpecialChars(relativePath);
   }
 
   /**
@@ -125,7 +107,7 @@ public final class UrlSuffixUtil {
    * @return Decoded path part
    */
   public static String decodeResourcePathPart(String suffixPart) {
-    return UNESCAPE_SPECIAL_CHARS.translate(suffixPart);
+    return unescapeSpecialChars(suffixPart);
   }
 
   /**
@@ -134,7 +116,7 @@ public final class UrlSuffixUtil {
    * @return Encoded string
    */
   public static String encodeKeyValuePart(String string) {
-    return ESCAPE_SPECIAL_CHARS.translate(string);
+    return escapeSpecialChars(string);
   }
 
   /**
@@ -145,7 +127,7 @@ public final class UrlSuffixUtil {
   public static String decodeValue(String suffixPart) {
     // value is the part *after* KEY_VALUE_DELIMITER
     String value = StringUtils.substringAfter(suffixPart, Character.toString(KEY_VALUE_DELIMITER));
-    return UNESCAPE_SPECIAL_CHARS.translate(value);
+    return unescapeSpecialChars(value);
   }
 
   /**
@@ -156,7 +138,89 @@ public final class UrlSuffixUtil {
   public static String decodeKey(String suffixPart) {
     // key is the part *before* KEY_VALUE_DELIMITER
     String key = StringUtils.substringBefore(suffixPart, Character.toString(KEY_VALUE_DELIMITER));
-    return UNESCAPE_SPECIAL_CHARS.translate(key);
+    return unescapeSpecialChars(key);
+  }
+
+  /**
+   * Escape special chars using lookup table.
+   * @param value Value
+   * @return Escaped value (same instance if no char needs escaping)
+   */
+  private static String escapeSpecialChars(String value) {
+    if (value == null) {
+      return null;
+    }
+    int length = value.length();
+    int index = 0;
+    while (index < length && !isSpecialChar(value.charAt(index))) {
+      index++;
+    }
+    if (index == length) {
+      return value;
+    }
+    StringBuilder result = new StringBuilder(length + 8);
+    result.append(value, 0, index);
+    for (; index < length; index++) {
+      char c = value.charAt(index);
+      if (isSpecialChar(c)) {
+        result.append(ESCAPE_TABLE[c]);
+      }
+      else {
+        result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  private static boolean isSpecialChar(char c) {
+    return c < ESCAPE_TABLE.length && ESCAPE_TABLE[c] != null;
+  }
+
+  /**
+   * Unescape special chars escaped by {@link #escapeSpecialChars(String)}.
+   * Escape sequences not produced for special chars are kept as they are.
+   * @param value Value
+   * @return Unescaped value (same instance if it contains no escape delimiter)
+   */
+  private static String unescapeSpecialChars(String value) {
+    if (value == null) {
+      return null;
+    }
+    int index = value.indexOf(ESCAPE_DELIMITER_CHAR);
+    if (index < 0) {
+      return value;
+    }
+    int length = value.length();
+    StringBuilder result = new StringBuilder(length);
+    result.append(value, 0, index);
+    while (index < length) {
+      char c = value.charAt(index);
+      if (c == ESCAPE_DELIMITER_CHAR && index + ESCAPED_CHAR_LENGTH <= length) {
+        int unescaped = hexValue(value.charAt(index + 1)) << 4 | hexValue(value.charAt(index + 2));
+        if (unescaped >= 0 && isSpecialChar((char)unescaped)) {
+          result.append((char)unescaped);
+          index += ESCAPED_CHAR_LENGTH;
+          continue;
+        }
+      }
+      result.append(c);
+      index++;
+    }
+    return result.toString();
+  }
+
+  /**
+   * @param c Char
+   * @return Value of upper-case hex digit, or a negative value large enough to invalidate the combined value
+   */
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -0x100;
   }
 
   /**
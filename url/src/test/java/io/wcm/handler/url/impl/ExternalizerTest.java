@@ -27,6 +27,10 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.junit.jupiter.api.Test;
@@ -42,6 +46,14 @@ import io.wcm.testing.mock.aem.junit5.AemContextExtension;
 @SuppressWarnings("null")
 class ExternalizerTest {
 
+  // reference implementation of isExternalized and mangleNamespaces based on regular expressions
+  private static final Pattern EXTERNALIZED_REFERENCE = Pattern.compile("^([^/]+:|//|#).*$");
+  private static final Pattern NAMESPACE_REFERENCE = Pattern.compile("/([^:/]+):");
+
+  // without line breaks: the reference pattern does not match them after the protocol as "." excludes line terminators,
+  // but URLs never contain unencoded line breaks
+  private static final String ALPHABET = "/:#._ahjtp0\u00e4\ud83d\ude00";
+
   private final AemContext context = new AemContext(ResourceResolverType.JCR_MOCK);
 
   @Test
@@ -130,12 +142,58 @@ class ExternalizerTest {
     assertTrue(Externalizer.isExternalized("//www.heise.de"));
     assertTrue(Externalizer.isExternalized("ftp://ftp.heise.de"));
     assertTrue(Externalizer.isExternalized(IntegratorPlaceholder.URL_CONTENT + "/path1"));
+    assertTrue(Externalizer.isExternalized("#anchor"));
+
+    assertFalse(Externalizer.isExternalized(""));
+    assertFalse(Externalizer.isExternalized("/"));
+    assertFalse(Externalizer.isExternalized(":path"));
   }
 
   @Test
   void testMangleNamespaces() {
     assertEquals("/content/aa/bb/content.png", Externalizer.mangleNamespaces("/content/aa/bb/content.png"));
     assertEquals("/content/aa/bb/_jcr_content.png", Externalizer.mangleNamespaces("/content/aa/bb/jcr:content.png"));
+    assertEquals("/content/_jcr_content/_ns_a/_ns_b:c", Externalizer.mangleNamespaces("/content/jcr:content/ns:a/ns:b:c"));
+    assertEquals("/content/:a/b:c", Externalizer.mangleNamespaces("/content/:a/b:c"));
+    assertEquals("relative:path", Externalizer.mangleNamespaces("relative:path"));
+  }
+
+  @Test
+  void testIsExternalized_CompatibleWithRegex() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      String url = randomString(random, ALPHABET);
+      assertEquals(EXTERNALIZED_REFERENCE.matcher(url).matches(), Externalizer.isExternalized(url), url);
+    }
+  }
+
+  @Test
+  void testMangleNamespaces_CompatibleWithRegex() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      // line breaks are matched by the namespace pattern as well
+      String path = randomString(random, ALPHABET + "\n");
+      assertEquals(mangleNamespacesReference(path), Externalizer.mangleNamespaces(path), path);
+    }
+  }
+
+  private static String randomString(Random random, String alphabet) {
+    StringBuilder value = new StringBuilder();
+    int length = random.nextInt(12);
+    for (int j = 0; j < length; j++) {
+      value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return value.toString();
+  }
+
+  private static String mangleNamespacesReference(String path) {
+    Matcher matcher = NAMESPACE_REFERENCE.matcher(path);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(sb, Matcher.quoteReplacement("/_" + matcher.group(1) + "_"));
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
   }
 
 }
@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.sling.servlethelpers.MockSlingHttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.wcm.handler.url.testcontext.AppAemContext;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+class RequestAttributeCacheTest {
+
+  private final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  void testGet() {
+    SampleCache cache = RequestAttributeCache.get(context.request(), SampleCache.class, SampleCache::new);
+    assertNotNull(cache);
+    assertSame(cache, context.request().getAttribute(SampleCache.class.getName()));
+    assertSame(cache, RequestAttributeCache.get(context.request(), SampleCache.class, SampleCache::new));
+  }
+
+  @Test
+  void testGet_OtherRequest() {
+    SampleCache cache = RequestAttributeCache.get(context.request(), SampleCache.class, SampleCache::new);
+    MockSlingHttpServletRequest otherRequest = new MockSlingHttpServletRequest(context.resourceResolver());
+    assertNotSame(cache, RequestAttributeCache.get(otherRequest, SampleCache.class, SampleCache::new));
+  }
+
+  @Test
+  void testGet_NoRequest() {
+    assertNull(RequestAttributeCache.get(null, SampleCache.class, SampleCache::new));
+  }
+
+  private static final class SampleCache {
+    // marker class
+  }
+
+}
@@ -24,17 +24,22 @@ import static io.wcm.testing.mock.wcmio.sling.ContextPlugins.WCMIO_SLING;
 import static org.apache.sling.testing.mock.caconfig.ContextPlugins.CACONFIG;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
-import io.wcm.handler.url.SiteRootDetector;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
 import io.wcm.testing.mock.aem.junit5.AemContext;
 import io.wcm.testing.mock.aem.junit5.AemContextBuilder;
 import io.wcm.testing.mock.aem.junit5.AemContextExtension;
 import io.wcm.testing.mock.wcmio.caconfig.MockCAConfig;
 
 @ExtendWith(AemContextExtension.class)
+@SuppressWarnings("deprecation")
 class SiteRootDetectorImplTest {
 
   private static final int ROOT_LEVEL = 2;
@@ -44,7 +49,7 @@ class SiteRootDetectorImplTest {
       .plugin(WCMIO_SLING, WCMIO_CACONFIG)
       .build();
 
-  private SiteRootDetector underTest;
+  private SiteRootDetectorImpl underTest;
 
   @BeforeEach
   void setUp() throws Exception {
@@ -61,4 +66,29 @@ class SiteRootDetectorImplTest {
     assertEquals(-1, underTest.getSiteRootLevel(null));
   }
 
+  @Test
+  void testCacheInvalidation() {
+    underTest.getSiteRootLevel(context.create().resource("/content/test1/test2"));
+    underTest.getSiteRootLevel(context.create().resource("/content/test1/test2/test3"));
+    underTest.getSiteRootLevel(context.create().resource("/content/test5/test6"));
+    underTest.getSiteRootLevel(context.resourceResolver().getResource("/content/test5/test6"));
+    assertEquals(3, underTest.getSize());
+    assertEquals(1, underTest.getHitCount());
+    assertEquals(3, underTest.getMissCount());
+
+    // change of other properties
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/test1/jcr:content", false,
+        null, ImmutableSet.of("jcr:title"), null)));
+    assertEquals(3, underTest.getSize());
+
+    // change of context path
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.CHANGED, "/content/test1/test2/jcr:content", false,
+        ImmutableSet.of(ContextResourceChanges.PN_CONFIG_REF), null, null)));
+    assertEquals(1, underTest.getSize());
+
+    // removed resource
+    underTest.onChange(ImmutableList.of(new ResourceChange(ChangeType.REMOVED, "/content/test5", false, null, null, null)));
+    assertEquals(0, underTest.getSize());
+  }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.service.event.Event;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+@SuppressWarnings("null")
+class SlingMappingCacheTest {
+
+  private final AemContext context = new AemContext(ResourceResolverType.JCR_MOCK);
+
+  private SlingMappingCache underTest;
+  private ResourceResolver resolver;
+
+  @BeforeEach
+  void setUp() {
+    underTest = context.registerInjectActivateService(new SlingMappingCache());
+    resolver = mock(ResourceResolver.class);
+    when(resolver.map(same(context.request()), anyString())).then(invocation -> "/mapped" + invocation.getArguments()[1]);
+  }
+
+  @Test
+  void testMappingCached() {
+    assertEquals("/mapped/the/path?param=1", Externalizer.externalizeUrl("/the/path?param=1", resolver, context.request(), underTest));
+    assertEquals("/mapped/the/path#hash", Externalizer.externalizeUrl("/the/path#hash", resolver, context.request(), underTest));
+    verify(resolver, times(1)).map(same(context.request()), eq("/the/path"));
+    assertEquals(1, underTest.size());
+  }
+
+  @Test
+  void testMappingCachedPerHost() {
+    Externalizer.externalizeUrl("/the/path", resolver, context.request(), underTest);
+    context.request().setServerName("otherhost");
+    Externalizer.externalizeUrl("/the/path", resolver, context.request(), underTest);
+    verify(resolver, times(2)).map(same(context.request()), eq("/the/path"));
+  }
+
+  @Test
+  void testInvalidateOnMappingChange() {
+    Externalizer.externalizeUrl("/the/path", resolver, context.request(), underTest);
+    underTest.handleEvent(mappingChangedEvent());
+    assertEquals(0, underTest.size());
+    Externalizer.externalizeUrl("/the/path", resolver, context.request(), underTest);
+    verify(resolver, times(2)).map(same(context.request()), eq("/the/path"));
+  }
+
+  @Test
+  void testNoInvalidateOnOtherEvent() {
+    Externalizer.externalizeUrl("/the/path", resolver, context.request(), underTest);
+    underTest.handleEvent(new Event("org/apache/sling/api/resource/Resource/CHANGED", (Map<String, ?>)null));
+    assertEquals(1, underTest.size());
+  }
+
+  @Test
+  void testMappingDuringChangeNotCached() {
+    String mappedPath = underTest.map("/the/path", resolver, context.request(), () -> {
+      // mapping changes while old mapping is applied
+      underTest.handleEvent(mappingChangedEvent());
+      return "/old/mapping";
+    });
+    assertEquals("/old/mapping", mappedPath);
+    assertEquals(0, underTest.size());
+  }
+
+  static Event mappingChangedEvent() {
+    return new Event(SlingConstants.TOPIC_RESOURCE_RESOLVER_MAPPING_CHANGED, (Map<String, ?>)null);
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.sling.api.resource.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.framework.Constants;
+
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+import io.wcm.handler.url.testcontext.AppAemContext;
+import io.wcm.handler.url.testcontext.DummyUrlHandlerConfig;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+@SuppressWarnings("null")
+class UrlHandlerAdapterFactoryTest {
+
+  private final AemContext context = AppAemContext.newAemContext();
+
+  private Resource resource;
+
+  @BeforeEach
+  void setUp() {
+    resource = context.create().resource("/content/unittest/de_test/brand/de/page1");
+  }
+
+  @Test
+  void testUrlHandlerConfig() {
+    UrlHandlerConfig urlHandlerConfig = resource.adaptTo(UrlHandlerConfig.class);
+    assertTrue(urlHandlerConfig instanceof DummyUrlHandlerConfig);
+    assertSame(urlHandlerConfig, resource.adaptTo(UrlHandlerConfig.class));
+  }
+
+  @Test
+  void testUrlHandlerConfig_ServiceRegistrationChange() {
+    assertTrue(resource.adaptTo(UrlHandlerConfig.class) instanceof DummyUrlHandlerConfig);
+
+    UrlHandlerConfig otherConfig = new UrlHandlerConfig() {
+      @Override
+      public int getSiteRootLevel(Resource contextResource) {
+        return 2;
+      }
+    };
+    context.registerService(UrlHandlerConfig.class, otherConfig, Constants.SERVICE_RANKING, 1000);
+
+    assertSame(otherConfig, resource.adaptTo(UrlHandlerConfig.class));
+  }
+
+}
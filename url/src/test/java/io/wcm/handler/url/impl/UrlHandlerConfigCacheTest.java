@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.osgi.framework.Constants;
+
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+@SuppressWarnings("null")
+class UrlHandlerConfigCacheTest {
+
+  private final AemContext context = new AemContext(ResourceResolverType.JCR_MOCK);
+
+  private UrlHandlerConfigCache underTest;
+  private UrlHandlerConfig config1;
+  private UrlHandlerConfig config2;
+
+  @BeforeEach
+  void setUp() {
+    underTest = context.registerInjectActivateService(new UrlHandlerConfigCache(), "cacheMaxSize", 2L);
+    config1 = new TestUrlHandlerConfig();
+    config2 = new TestUrlHandlerConfig();
+  }
+
+  @Test
+  void testCached() {
+    assertSame(config1, underTest.get("/content/page1", () -> config1));
+    assertSame(config1, underTest.get("/content/page1", () -> config2));
+    assertEquals(1, underTest.getSize());
+    assertEquals(1, underTest.getHitCount());
+    assertEquals(1, underTest.getMissCount());
+  }
+
+  @Test
+  void testMaxSize() {
+    underTest.get("/content/page1", () -> config1);
+    underTest.get("/content/page2", () -> config1);
+    underTest.get("/content/page3", () -> config1);
+    assertEquals(2, underTest.getSize());
+    assertEquals(1, underTest.getEvictionCount());
+  }
+
+  @Test
+  void testInvalidateOnServiceRegistration() {
+    underTest.get("/content/page1", () -> config1);
+    context.registerService(UrlHandlerConfig.class, config2, Constants.SERVICE_RANKING, 1000);
+    assertEquals(0, underTest.getSize());
+    assertSame(config2, underTest.get("/content/page1", () -> config2));
+  }
+
+  @Test
+  void testResolveDuringServiceChangeNotCached() {
+    UrlHandlerConfig urlHandlerConfig = underTest.get("/content/page1", () -> {
+      // service is registered while old service is resolved
+      context.registerService(UrlHandlerConfig.class, config2);
+      return config1;
+    });
+    assertSame(config1, urlHandlerConfig);
+    assertEquals(0, underTest.getSize());
+  }
+
+  @Test
+  void testNullNotCached() {
+    underTest.get("/content/page1", () -> null);
+    assertEquals(0, underTest.getSize());
+  }
+
+  private static class TestUrlHandlerConfig extends UrlHandlerConfig {
+    @Override
+    public int getSiteRootLevel(Resource contextResource) {
+      return 0;
+    }
+  }
+
+}
@@ -20,12 +20,16 @@
 package io.wcm.handler.url.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.Set;
@@ -43,6 +47,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.osgi.framework.Constants;
 
 import com.day.cq.commons.jcr.JcrConstants;
 import com.day.cq.wcm.api.Page;
@@ -52,6 +57,7 @@ import io.wcm.handler.url.UrlHandler;
 import io.wcm.handler.url.UrlMode;
 import io.wcm.handler.url.UrlModes;
 import io.wcm.handler.url.integrator.IntegratorPlaceholder;
+import io.wcm.handler.url.spi.UrlHandlerConfig;
 import io.wcm.handler.url.testcontext.AppAemContext;
 import io.wcm.handler.url.testcontext.DummyAppTemplate;
 import io.wcm.sling.commons.adapter.AdaptTo;
@@ -126,6 +132,45 @@ class UrlHandlerImplTest {
 
   }
 
+  /**
+   * Test {@link UrlHandler#rewritePathToContext(Resource, Resource)} with different contexts in the same request
+   */
+  @Test
+  void testRewritePathToContext_MultipleContexts() {
+    UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals("/content/unittest/de_test/brand/de/section/page",
+          rewritePathToContext(urlHandler, "/content/unittest/de_test/brand/fr/section/page", "/content/unittest/de_test/brand/de/page1"));
+      assertEquals("/content/unittest/de_test/brand/en/section/page",
+          rewritePathToContext(urlHandler, "/content/unittest/de_test/brand/fr/section/page", "/content/unittest/de_test/brand/en/page1"));
+      assertEquals("/content/unittest/de_test/brand/fr/section/page",
+          rewritePathToContext(urlHandler, "/content/unittest/de_test/brand/fr/section/page", "/content/unittest"));
+    }
+  }
+
+  /**
+   * Test {@link UrlHandler#rewritePathToContext(Resource)} with URL handlers using different configurations in the same request
+   */
+  @Test
+  void testRewritePathToContext_DifferentUrlHandlerConfig() {
+    UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+    assertEquals("/content/unittest/de_test/brand/de/section/page",
+        rewritePathToContext(urlHandler, "/content/unittest/de_test/brand/fr/section/page"));
+
+    UrlHandlerConfig otherConfig = new UrlHandlerConfig() {
+      @Override
+      public int getSiteRootLevel(Resource contextResource) {
+        return 2;
+      }
+    };
+    context.registerService(UrlHandlerConfig.class, otherConfig, Constants.SERVICE_RANKING, 1000);
+
+    UrlHandler otherUrlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+    assertEquals("/content/unittest/de_test/brand/fr/section/page",
+        rewritePathToContext(otherUrlHandler, "/content/unittest/de_test/brand/fr/section/page"));
+  }
+
   /**
    * Test {@link UrlHandler#rewritePathToContext(Resource)} with current invalid context
    */
@@ -621,6 +666,30 @@ class UrlHandlerImplTest {
 
   }
 
+  @Test
+  void testBuildUrlAllParts() throws IOException {
+    UrlHandler urlHandler = AdaptTo.notNull(adaptable(), UrlHandler.class);
+
+    assertEquals("/the/path.sel1.suffix.ext/suffix1.ext?p1=v1#anchor", urlHandler.get("/the/path")
+        .selectors("sel1").extension("ext").suffix("suffix1").queryString("p1=v1").fragment("anchor").build());
+    assertEquals("/the/path.ext?p1=v1#anchor", urlHandler.get("/the/path")
+        .extension("ext").queryString("p1=v1#otheranchor").fragment("#anchor").build());
+    assertEquals("/the/path.ext?p0=v0&p1=v1#anchor", urlHandler.get("/the/path.ext?p0=v0")
+        .queryString("p1=v1").fragment("anchor").build());
+
+    StringBuilder sb = new StringBuilder("<a href=\"");
+    assertTrue(urlHandler.get("/the/path").extension("ext").queryString("p1=v1").build(sb));
+    assertEquals("<a href=\"/the/path.ext?p1=v1", sb.toString());
+
+    StringWriter writer = new StringWriter();
+    assertTrue(urlHandler.get("/the/path").selectors("sel1").extension("ext").fragment("anchor").build(writer));
+    assertEquals("/the/path.sel1.ext#anchor", writer.toString());
+
+    writer = new StringWriter();
+    assertFalse(urlHandler.get("").extension("ext").build(writer));
+    assertEquals("", writer.toString());
+  }
+
   private static String externalizeLinkUrl(UrlHandler urlHandler, String url, Page targetPage) {
     return urlHandler.get(url).buildExternalLinkUrl(targetPage);
   }
@@ -659,7 +728,7 @@ class UrlHandlerImplTest {
    * - /content/unittest/de_test/brand/de -> /de
    * - /content/* -> /*
    */
-  private static MockSlingHttpServletRequest applySimpleMapping(SlingHttpServletRequest request) {
+  private MockSlingHttpServletRequest applySimpleMapping(SlingHttpServletRequest request) {
     ResourceResolver spyResolver = spy(request.getResourceResolver());
     Answer<String> mappingAnswer = new Answer<String>() {
       @Override
@@ -694,6 +763,8 @@ class UrlHandlerImplTest {
     };
     when(spyResolver.map(anyString())).thenAnswer(mappingAnswer);
     when(spyResolver.map(any(SlingHttpServletRequest.class), anyString())).thenAnswer(mappingAnswer);
+    // notify mapping cache about changed mapping like the resource resolver does after refreshing its mapping entries
+    context.getService(SlingMappingCache.class).handleEvent(SlingMappingCacheTest.mappingChangedEvent());
     MockSlingHttpServletRequest newRequest = new MockSlingHttpServletRequest(spyResolver);
     newRequest.setResource(request.getResource());
     newRequest.setContextPath(request.getContextPath());
@@ -22,12 +22,20 @@ package io.wcm.handler.url.impl.modes;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.caconfig.MockContextAwareConfig;
 import org.junit.jupiter.api.Test;
+import org.osgi.framework.Constants;
 
+import io.wcm.handler.url.SiteConfig;
+import io.wcm.handler.url.SiteRootDetector;
 import io.wcm.handler.url.UrlMode;
 import io.wcm.handler.url.UrlModes;
 import io.wcm.handler.url.integrator.IntegratorHandler;
 import io.wcm.handler.url.integrator.IntegratorPlaceholder;
+import io.wcm.handler.url.spi.UrlHandlerConfig;
+import io.wcm.handler.url.testcontext.DummyUrlHandlerConfig;
+import io.wcm.testing.mock.wcmio.caconfig.MockCAConfig;
 import io.wcm.wcm.commons.util.RunMode;
 
 class FullUrlUrlModeTest extends AbstractUrlModeTest {
@@ -55,6 +63,34 @@ class FullUrlUrlModeTest extends AbstractUrlModeTest {
 
   }
 
+  /**
+   * Test with separate configuration contexts below the site root
+   */
+  @Test
+  void testNestedConfigContexts() {
+    MockCAConfig.contextPathStrategyAbsoluteParent(context,
+        DummyUrlHandlerConfig.SITE_ROOT_LEVEL, DummyUrlHandlerConfig.SITE_ROOT_LEVEL + 1);
+
+    // detect site root from inner-most configuration context like the default URL handler configuration
+    SiteRootDetector siteRootDetector = context.getService(SiteRootDetector.class);
+    context.registerService(UrlHandlerConfig.class, new UrlHandlerConfig() {
+      @Override
+      public int getSiteRootLevel(Resource contextResource) {
+        return siteRootDetector.getSiteRootLevel(contextResource);
+      }
+    }, Constants.SERVICE_RANKING, 1000);
+
+    MockContextAwareConfig.writeConfiguration(context, "/content/unittest/de_test/brand/de/section", SiteConfig.class.getName(),
+        "siteUrl", "http://section.dummysite.org");
+    MockContextAwareConfig.writeConfiguration(context, "/content/unittest/de_test/brand/de/section2", SiteConfig.class.getName(),
+        "siteUrl", "http://section2.dummysite.org");
+
+    context.runMode(RunMode.PUBLISH);
+    assertEquals("http://section2.dummysite.org", urlMode().getLinkUrlPrefix(adaptable(), runModes(), currentPage, targetPage));
+    assertEquals("http://section.dummysite.org", urlMode().getLinkUrlPrefix(adaptable(), runModes(), currentPage, currentPage));
+    assertEquals("http://section2.dummysite.org", urlMode().getLinkUrlPrefix(adaptable(), runModes(), currentPage, targetPage));
+  }
+
   /**
    * Test without site urls
    */
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.impl.modes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.api.resource.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.wcm.handler.url.testcontext.AppAemContext;
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+class UrlConfigRequestCacheTest {
+
+  private final AemContext context = AppAemContext.newAemContext();
+
+  @Test
+  void testGet() {
+    UrlConfigRequestCache cache = UrlConfigRequestCache.get(context.request());
+    assertNotNull(cache);
+    assertSame(cache, UrlConfigRequestCache.get(context.request()));
+
+    Resource resource = context.create().resource("/content/unittest/de_test/brand/de");
+    assertNull(UrlConfigRequestCache.get(resource));
+  }
+
+  @Test
+  void testGetUrlConfig() {
+    Resource resource = context.create().resource("/content/unittest/de_test/brand/de");
+    UrlConfigRequestCache cache = UrlConfigRequestCache.get(context.request());
+    AtomicInteger count = new AtomicInteger();
+
+    UrlConfig urlConfig = cache.getUrlConfig(resource.getPath(), () -> {
+      count.incrementAndGet();
+      return new UrlConfig(resource);
+    });
+    assertEquals("http://de.dummysite.org", urlConfig.getSiteUrl());
+    assertSame(urlConfig, cache.getUrlConfig(resource.getPath(), () -> {
+      count.incrementAndGet();
+      return new UrlConfig(resource);
+    }));
+    assertEquals(1, count.get());
+  }
+
+  @Test
+  void testIsOtherDomain() {
+    UrlConfigRequestCache cache = UrlConfigRequestCache.get(context.request());
+    AtomicInteger count = new AtomicInteger();
+
+    assertTrue(cache.isOtherDomain("/content/site1", "/content/site2", () -> count.incrementAndGet() > 0));
+    assertTrue(cache.isOtherDomain("/content/site1", "/content/site2", () -> count.incrementAndGet() > 0));
+    assertEquals(1, count.get());
+  }
+
+}
@@ -154,4 +154,23 @@ class IntegratorHandlerImplTest {
     assertEquals(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE_SECURE, underTest.getIntegratorTemplateSelector());
   }
 
+  @Test
+  void testIntegratorSettingsCachedPerRequest() throws PersistenceException {
+    Page integratorPage = context.create().page(PAGE_PATH, DummyAppTemplate.INTEGRATOR.getTemplatePath());
+    context.currentPage(integratorPage);
+    IntegratorHandler underTest = adaptable().adaptTo(IntegratorHandler.class);
+    assertEquals(IntegratorModes.SIMPLE, underTest.getIntegratorMode());
+
+    ModifiableValueMap props = integratorPage.getContentResource().adaptTo(ModifiableValueMap.class);
+    props.put(IntegratorNameConstants.PN_INTEGRATOR_MODE, IntegratorModes.EXTENDED.getId());
+    context.resourceResolver().commit();
+
+    // settings are detected only once within the same request
+    assertEquals(IntegratorModes.SIMPLE, adaptable().adaptTo(IntegratorHandler.class).getIntegratorMode(integratorPage));
+
+    // outside of a request settings are not cached
+    IntegratorHandler resourceIntegratorHandler = integratorPage.getContentResource().adaptTo(IntegratorHandler.class);
+    assertEquals(IntegratorModes.EXTENDED, resourceIntegratorHandler.getIntegratorMode(integratorPage));
+  }
+
 }
@@ -19,6 +19,8 @@
  */
 package io.wcm.handler.url.rewriter.impl;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -58,6 +60,7 @@ class UrlExternalizerTransformerTest {
   @Mock
   private ProcessingComponentConfiguration processingComponentConfiguration;
 
+  private UrlExternalizerTransformerFactory factory;
   private Transformer underTest;
 
   @BeforeEach
@@ -70,7 +73,7 @@ class UrlExternalizerTransformerTest {
         })
         .build());
 
-    UrlExternalizerTransformerFactory factory = context.registerInjectActivateService(new UrlExternalizerTransformerFactory());
+    factory = context.registerInjectActivateService(new UrlExternalizerTransformerFactory());
 
     underTest = factory.createTransformer();
     underTest.setContentHandler(contentHandler);
@@ -139,6 +142,29 @@ class UrlExternalizerTransformerTest {
     verifyTransformer("element1", "attr1", "#my-anchor");
   }
 
+  @Test
+  void testRewriteSameUrlMultipleTimes_IntegratorTemplateMode() {
+    context.requestPathInfo().setSelectorString(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE);
+    callTransformer("element1", "attr1", "/my/url");
+    callTransformer("element2", "attr2", "/my/url");
+    callTransformer("element1", "attr1", "/my/url");
+    verifyTransformer(2, "element1", "attr1", "http://de.dummysite.org/my/url");
+    verifyTransformer(1, "element2", "attr2", "http://de.dummysite.org/my/url");
+  }
+
+  @Test
+  void testRewriteExternalizedUrl_IntegratorTemplateMode() {
+    context.requestPathInfo().setSelectorString(IntegratorHandler.SELECTOR_INTEGRATORTEMPLATE);
+    callTransformer("element1", "attr1", "http://host/my/url%20with%20space?param1=value");
+    verifyTransformer("element1", "attr1", "http://host/my/url%20with%20space?param1=value");
+  }
+
+  @Test
+  void testTransformerConfigParsedOnce() {
+    assertSame(factory.getTransformerConfig(processingComponentConfiguration.getConfiguration()),
+        factory.getTransformerConfig(processingComponentConfiguration.getConfiguration()));
+  }
+
   private void callTransformer(String elementName, String... attributes) {
     try {
       underTest.init(processingContext, processingComponentConfiguration);
@@ -150,8 +176,12 @@ class UrlExternalizerTransformerTest {
   }
 
   private void verifyTransformer(String elementName, String... attributes) {
+    verifyTransformer(1, elementName, attributes);
+  }
+
+  private void verifyTransformer(int times, String elementName, String... attributes) {
     try {
-      verify(contentHandler).startElement(null, elementName, null, toAttributes(attributes));
+      verify(contentHandler, times(times)).startElement(null, elementName, null, toAttributes(attributes));
     }
     catch (SAXException ex) {
       throw new RuntimeException(ex);
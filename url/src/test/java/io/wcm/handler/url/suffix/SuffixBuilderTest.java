@@ -683,4 +683,42 @@ class SuffixBuilderTest {
         + "ghi=123", builder.build());
   }
 
+  @Test
+  void testToTemplate() {
+    // prepare complexing incoming suffix with resource and key/value parts
+    setContextAttributes(prepareStateKeepingSuffix(), null);
+
+    SuffixTemplate template = SuffixBuilder.thatKeepsNamedPartsAndResources(context.request(), "abc", "ghi").toTemplate();
+    String resourceParts = "a" + ESCAPED_SLASH + "a" + SUFFIX_PART_DELIMITER + "b" + SUFFIX_PART_DELIMITER + "c" + ENCODED_NASTY_NODE_NAME;
+
+    assertEquals(resourceParts + SUFFIX_PART_DELIMITER + "abc=true" + SUFFIX_PART_DELIMITER + "ghi=123", template.build());
+
+    // insert new key in sorted position
+    assertEquals(resourceParts + SUFFIX_PART_DELIMITER + "abc=true" + SUFFIX_PART_DELIMITER + "def=1~2E5"
+        + SUFFIX_PART_DELIMITER + "ghi=123", template.with("def", "1.5"));
+    assertEquals(resourceParts + SUFFIX_PART_DELIMITER + "abc=true" + SUFFIX_PART_DELIMITER + "ghi=123"
+        + SUFFIX_PART_DELIMITER + "xyz=5", template.with("xyz", 5));
+
+    // replace existing key
+    assertEquals(resourceParts + SUFFIX_PART_DELIMITER + "abc=false" + SUFFIX_PART_DELIMITER + "ghi=123", template.with("abc", false));
+
+    // template is not modified
+    assertEquals(SuffixBuilder.thatKeepsNamedPartsAndResources(context.request(), "abc", "ghi").put("ghi", 5L).build(),
+        template.with("ghi", 5L));
+    assertEquals(resourceParts + SUFFIX_PART_DELIMITER + "abc=true" + SUFFIX_PART_DELIMITER + "ghi=123", template.build());
+  }
+
+  @Test
+  void testToTemplateEmpty() {
+    SuffixTemplate template = SuffixBuilder.thatDiscardsAllSuffixState().toTemplate();
+    assertEquals("", template.build());
+    assertEquals("abc=def", template.with("abc", "def"));
+  }
+
+  @Test
+  void testToTemplateInvalidValueType() {
+    SuffixTemplate template = SuffixBuilder.thatDiscardsAllSuffixState().toTemplate();
+    assertThrows(IllegalArgumentException.class, () -> template.with("abc", new Object()));
+  }
+
 }
@@ -24,11 +24,14 @@ import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.SUFFIX_PART_DELIMITER
 import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.hexCode;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.CharEncoding;
@@ -38,7 +41,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import com.day.cq.wcm.api.Page;
+import com.google.common.collect.ImmutableList;
 
+import io.wcm.handler.url.suffix.impl.ParsedSuffix;
 import io.wcm.handler.url.testcontext.AppAemContext;
 import io.wcm.sling.commons.resource.ImmutableValueMap;
 import io.wcm.testing.mock.aem.junit5.AemContext;
@@ -442,6 +447,25 @@ class SuffixParserTest {
     assertEquals(tagId, new SuffixParser(context.request()).get("tag", String.class));
   }
 
+  @Test
+  void testParsedSuffixCachedPerRequest() {
+    context.requestPathInfo().setSuffix("/abc=def/ghi=1/abc=xyz/a" + ESCAPED_SLASH + "b.html");
+    ParsedSuffix parsedSuffix = ParsedSuffix.get(context.request());
+    assertSame(parsedSuffix, ParsedSuffix.get(context.request()));
+    assertEquals("def", parsedSuffix.getValue("abc"));
+    assertEquals("1", parsedSuffix.getValue("ghi"));
+    assertEquals(ImmutableList.of("a/b"), parsedSuffix.getResourcePaths());
+
+    SuffixParser parser = new SuffixParser(context.request());
+    assertEquals("def", parser.get("abc", String.class));
+    assertEquals(1, (int)parser.get("ghi", 0));
+
+    // different suffix within same request
+    context.requestPathInfo().setSuffix("/abc=other.html");
+    assertNotSame(parsedSuffix, ParsedSuffix.get(context.request()));
+    assertEquals("other", new SuffixParser(context.request()).get("abc", String.class));
+  }
+
   @Test
   void testPage() {
     Page currentPage = context.create().page("/content/a");
@@ -556,4 +580,41 @@ class SuffixParserTest {
     assertEquals(targetPage1.getPath(), suffixPages.get(0).getPath());
   }
 
+  @Test
+  void testPagesDuplicatePaths() {
+    Page currentPage = context.create().page("/content/a");
+    Page targetPage1 = context.create().page("/content/a/b/c");
+    Page targetPage2 = context.create().page("/content/a/d/1");
+
+    SuffixParser parser = getParserWithIncommingSuffix("b" + ESCAPED_SLASH + "c"
+        + SUFFIX_PART_DELIMITER + "d" + ESCAPED_SLASH + "1"
+        + SUFFIX_PART_DELIMITER + "b" + ESCAPED_SLASH + "c", currentPage);
+    List<Page> suffixPages = parser.getPages();
+
+    assertEquals(3, suffixPages.size());
+    assertEquals(targetPage1.getPath(), suffixPages.get(0).getPath());
+    assertEquals(targetPage2.getPath(), suffixPages.get(1).getPath());
+    assertEquals(targetPage1.getPath(), suffixPages.get(2).getPath());
+  }
+
+  @Test
+  void testPageResolvesOnlyUntilFirstMatch() {
+    Page currentPage = context.create().page("/content/a");
+    Page targetPage1 = context.create().page("/content/a/b/c");
+    context.create().page("/content/a/d/1");
+    context.create().page("/content/a/d/2");
+
+    SuffixParser parser = getParserWithIncommingSuffix("b" + ESCAPED_SLASH + "c"
+        + SUFFIX_PART_DELIMITER + "d" + ESCAPED_SLASH + "1"
+        + SUFFIX_PART_DELIMITER + "d" + ESCAPED_SLASH + "2", currentPage);
+    AtomicInteger filterCount = new AtomicInteger();
+    Page suffixPage = parser.getPage(page -> {
+      filterCount.incrementAndGet();
+      return true;
+    });
+
+    assertEquals(targetPage1.getPath(), suffixPage.getPath());
+    assertEquals(1, filterCount.get());
+  }
+
 }
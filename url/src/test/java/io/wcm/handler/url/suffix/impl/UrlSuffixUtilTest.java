@@ -0,0 +1,90 @@
+/*
+ * #%L
+ * wcm.io
+ * %%
+ * Copyright (C) 2019 wcm.io
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.wcm.handler.url.suffix.impl;
+
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeKey;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeResourcePathPart;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.decodeValue;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeKeyValuePart;
+import static io.wcm.handler.url.suffix.impl.UrlSuffixUtil.encodeResourcePathPart;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.text.translate.CharSequenceTranslator;
+import org.apache.commons.lang3.text.translate.EntityArrays;
+import org.apache.commons.lang3.text.translate.LookupTranslator;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("deprecation")
+class UrlSuffixUtilTest {
+
+  // reference implementation of the escaping based on commons-lang translators
+  private static final String[][] SPECIAL_CHARS_MAPPING = {
+      { "/", "~2F" }, { "=", "~3D" }, { ".", "~2E" }, { "%", "~25" }, { ":", "~3A" }, { " ", "~20" }
+  };
+  private static final CharSequenceTranslator ESCAPE_REFERENCE = new LookupTranslator(SPECIAL_CHARS_MAPPING);
+  private static final CharSequenceTranslator UNESCAPE_REFERENCE = new LookupTranslator(EntityArrays.invert(SPECIAL_CHARS_MAPPING));
+
+  private static final String ALPHABET = "~/=.%: abcAF0129efxyz\u00e4\ud83d\ude00";
+
+  @Test
+  void testEncode() {
+    assertEquals("a~2Fb~3Dc~2Ed~25e~3Af~20g~h", encodeKeyValuePart("a/b=c.d%e:f g~h"));
+    assertEquals("a~2Fb", encodeResourcePathPart("a/b"));
+    assertNull(encodeKeyValuePart(null));
+  }
+
+  @Test
+  void testDecode() {
+    assertEquals("a/b=c.d%e:f g~h", decodeResourcePathPart("a~2Fb~3Dc~2Ed~25e~3Af~20g~h"));
+    assertEquals("~2f~41~~/~2", decodeResourcePathPart("~2f~41~~~2F~2"));
+    assertEquals("a.b", decodeKey("a~2Eb=c~2Ed"));
+    assertEquals("c.d", decodeValue("a~2Eb=c~2Ed"));
+    assertNull(decodeResourcePathPart(null));
+  }
+
+  @Test
+  void testUnchangedValuesNotCopied() {
+    String value = "no-special-chars";
+    assertSame(value, encodeKeyValuePart(value));
+    assertSame(value, decodeResourcePathPart(value));
+  }
+
+  @Test
+  void testCompatibleWithLookupTranslator() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      String string = value.toString();
+      assertEquals(ESCAPE_REFERENCE.translate(string), encodeKeyValuePart(string), string);
+      assertEquals(UNESCAPE_REFERENCE.translate(string), decodeResourcePathPart(string), string);
+      String encoded = encodeResourcePathPart(string);
+      assertEquals(UNESCAPE_REFERENCE.translate(encoded), decodeResourcePathPart(encoded), encoded);
+    }
+  }
+
+}
@@ -33,7 +33,9 @@ import org.jetbrains.annotations.NotNull;
 import io.wcm.handler.url.SiteConfig;
 import io.wcm.handler.url.impl.DefaultUrlHandlerConfig;
 import io.wcm.handler.url.impl.SiteRootDetectorImpl;
+import io.wcm.handler.url.impl.SlingMappingCache;
 import io.wcm.handler.url.impl.UrlHandlerAdapterFactory;
+import io.wcm.handler.url.impl.UrlHandlerConfigCache;
 import io.wcm.handler.url.spi.UrlHandlerConfig;
 import io.wcm.testing.mock.aem.junit5.AemContext;
 import io.wcm.testing.mock.aem.junit5.AemContextBuilder;
@@ -67,6 +69,8 @@ public final class AppAemContext {
 
       // handler SPI
       context.registerInjectActivateService(new SiteRootDetectorImpl());
+      context.registerInjectActivateService(new SlingMappingCache());
+      context.registerInjectActivateService(new UrlHandlerConfigCache());
       context.registerInjectActivateService(new UrlHandlerAdapterFactory());
       context.registerInjectActivateService(new DefaultUrlHandlerConfig());
       context.registerService(UrlHandlerConfig.class, new DummyUrlHandlerConfig());